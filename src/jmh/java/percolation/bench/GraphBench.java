@@ -0,0 +1,48 @@
+package percolation.bench;
+
+import org.openjdk.jmh.annotations.*;
+import percolation.Graph;
+import percolation.util.Config;
+import percolation.util.ConfigBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+// graph construction and sampling (Graph.init) per radius, layout and rng
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = { "-Xmx8g" })
+public class GraphBench {
+
+    @Param({ "100", "500", "1000", "2000" })
+    public int radius;
+
+    @Param({ "rows", "hilbert" })
+    public String layout;
+
+    @Param({ "legacy", "split" })
+    public String rng;
+
+    private Config gc;
+    private Graph g;
+    private long seed;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        gc = new ConfigBuilder().radius(radius).layout(layout).rng(rng).stats("none").build();
+        g = new Graph(gc);
+    }
+
+    @Benchmark
+    public Graph construct() {
+        return new Graph(gc);
+    }
+
+    @Benchmark
+    public Graph init() {
+        g.init(++seed);
+        return g;
+    }
+}
@@ -0,0 +1,57 @@
+package percolation.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import percolation.Dec;
+import percolation.Graph;
+import percolation.SPT;
+import percolation.util.Config;
+import percolation.util.ConfigBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+// the fused kernels of BFS and IBFS against the decorated path: a pass-through Dec, as with the stats and vis
+// decorators, makes the engines call through dec, Queue and Graph in the inner loop
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = { "-Xmx8g" })
+public class KernelBench {
+
+    @Param({ "BFS", "IBFS" })
+    public String spt;
+
+    @Param({ "1000" })
+    public int radius;
+
+    @Param({ "false", "true" })
+    public boolean decorated;
+
+    private Config gc;
+    private SPT engine, dec;
+    private long seed;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        gc = new ConfigBuilder().spt(spt).radius(radius).from(50).to(100).step(5).targets("all").stats("none").build();
+        engine = SPT.load(gc, Graph.load(gc), spt);
+        dec = decorated ? engine.set(new Dec(engine)) : engine;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        engine.close();
+    }
+
+    @Benchmark
+    public void sweep(Blackhole bh) {
+        dec.init(++seed);
+        for (int pn = gc.from; pn <= gc.to; pn += gc.step) {
+            dec.preUpdate(pn);
+            dec.update(pn);
+        }
+        bh.consume(dec.dist(0));
+    }
+}
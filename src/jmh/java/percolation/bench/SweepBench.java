@@ -0,0 +1,59 @@
+package percolation.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import percolation.Graph;
+import percolation.SPT;
+import percolation.util.Config;
+import percolation.util.ConfigBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+// one run of an SPT engine: Graph.init and a full sweep of the probability numerators, as in SimBase. compare the
+// engines at the same radius and step, and PIBFS over pibfsThreads
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = { "-Xmx8g" })
+public class SweepBench {
+
+    @Param({ "BFS", "IBFS", "PIBFS" })
+    public String spt;
+
+    @Param({ "200", "1000" })
+    public int radius;
+
+    @Param({ "1", "5", "20" })
+    public int step;
+
+    @Param({ "0" }) // PIBFS workers (0: half of the cores)
+    public int pibfsThreads;
+
+    private Config gc;
+    private SPT engine;
+    private long seed;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        gc = new ConfigBuilder().spt(spt).radius(radius).from(40).to(100).step(step).pibfsThreads(pibfsThreads)
+                .targets("all").stats("none").build();
+        engine = SPT.load(gc, Graph.load(gc), spt);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        engine.close();
+    }
+
+    @Benchmark
+    public void sweep(Blackhole bh) {
+        engine.init(++seed);
+        for (int pn = gc.from; pn <= gc.to; pn += gc.step) {
+            engine.preUpdate(pn);
+            engine.update(pn);
+        }
+        bh.consume(engine.dist(0));
+    }
+}
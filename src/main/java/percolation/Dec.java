@@ -54,6 +54,22 @@ public class Dec implements SPT {
         return that.qsize();
     }
 
+    @Override public int lanes() {
+        return that.lanes();
+    }
+
+    @Override public void root(int vid) {
+        that.root(vid);
+    }
+
+    @Override public int dist(int vid, int lane) {
+        return that.dist(vid, lane);
+    }
+
+    @Override public int[] clusters() {
+        return that.clusters();
+    }
+
     @Override public void close() throws Exception {
         that.close();
     }
@@ -2,7 +2,9 @@ package percolation;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import percolation.db.ColumnStore;
 import percolation.db.Database;
+import percolation.db.SimColumnDec;
 import percolation.db.SimDbDec;
 import percolation.stats.FullSptStatsDec;
 import percolation.stats.MinSptStatsDec;
@@ -13,6 +15,8 @@ import percolation.vis.VisDec;
 import percolation.vis.VisConfig;
 import percolation.vis.VisEngine;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
 
 public class Decs implements AutoCloseable {
@@ -21,20 +25,22 @@ public class Decs implements AutoCloseable {
 
     private final Config gc;
     private final Graph g;
-    private final int[] targets;
+    private final int[] stored; // the targets the stores see (one per class with gc.fold)
     private final Database db;
+    private final ColumnStore columns;
     public final Stats stats;
     private final VisEngine vis;
 
     public Decs(Config gc, Graph g, int[] targets) {
         this.gc = gc;
         this.g = g;
-        this.targets = targets;
+        stored = Graph.fold(gc, g, targets).reps();
         try {
             db = gc.dbUrl == null ? null : new Database(gc, gc.dbUrl);
+            columns = gc.storeFile == null ? null : ColumnStore.open(Path.of(gc.storeFile), gc, g, stored);
             stats = gc.stats.equals("none") ? null : new Stats(gc);
             vis = gc.vis ? new VisEngine(gc, new VisConfig(gc.visProps), g, targets) : null;
-        } catch (SQLException | ClassNotFoundException e) {
+        } catch (SQLException | ClassNotFoundException | IOException e) {
             throw new RuntimeException(e);
         }
     }
@@ -46,7 +52,9 @@ public class Decs implements AutoCloseable {
         if (gc.stats.equals("full") || gc.stats.equals("min"))
             sim = sim.set(new SimStatsDec(gc, sim, stats));
         if (db != null)
-            sim = sim.set(new SimDbDec(gc, sim, db, g, targets));
+            sim = sim.set(new SimDbDec(gc, sim, db, g, stored));
+        if (columns != null)
+            sim = sim.set(new SimColumnDec(gc, sim, columns));
         return sim;
     }
 
@@ -63,6 +71,8 @@ public class Decs implements AutoCloseable {
     @Override public void close() throws Exception {
         if (db != null)
             db.close();
+        if (columns != null)
+            columns.close();
         if (stats != null)
             stats.close();
         if (vis != null)
@@ -1,12 +1,19 @@
 package percolation;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import percolation.util.Config;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.Random;
+import java.util.stream.IntStream;
 
+import static java.lang.Class.forName;
 import static java.lang.Integer.*;
 
 
@@ -15,21 +22,41 @@ public class Graph {
     private static final Logger log = LoggerFactory.getLogger(Graph.class);
 
     public static final int INIT = MAX_VALUE - 1;
+    private static final char NONE = Character.MAX_VALUE, UNSET = NONE - 1; // compact MAX_VALUE and INIT
 
-    public final int root;
+    public int root; // vid(0, 0) unless moved by root(vid) for another sweep on the same realization
     protected final Config gc;
-    private final Random rng = new Random();
+    private final Random rng = new Random(); // legacy generator (gc.rng = legacy)
+    private static final int CHUNK = 1 << 16; // vertices per parallel init task (gc.rng = split)
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
 
     public static final int X = 0, Y = 1, R = 0, D = 1, L = 2, U = 3; // do not change this line!
     public final int r, vs; // radius and number of vertices
 
-    public final int[][] epn; // edge probability numerators
-    private final int[][] ax; // vid to x, y coordinate mapping
-    protected final int[][] xy; // x, y coordinates to vid mapping
-    public final int[][] next = new int[4][]; // vid to right, down, left, up vertex mapping
+    private final char[][] ep = new char[2][]; // right and down edge probability numerators (left/up via next)
+    private final int[][] ax; // vid to x, y coordinate mapping (null if not materialized)
+    protected final int[][] xy; // x, y coordinates to vid mapping (null if not materialized)
+    protected final int[][] next = new int[4][]; // vid to right, down, left, up vertex mapping
+    private final int[] perm, cid; // row layout vid to vid and back (null for gc.layout = rows)
     public int pn; // current probability numerator
 
+    public static Graph load(Config gc) throws Exception {
+        return gc.graph == null ? new Graph(gc) : (Graph) forName(gc.graph.indexOf('.') == -1
+                ? "percolation.graphs." + gc.graph : gc.graph).getMethod("create", Config.class).invoke(null, gc);
+    }
+
     public Graph(Config gc) {
+        this(gc, true);
+    }
+
+    // subclasses that derive the coordinates and neighbours on the fly pass materialize = false and
+    // override vid(), next(), isNotAt(), x() and y(), which must only depend on r and gc
+    protected Graph(Config gc, boolean materialize) {
+        this(gc, materialize, true);
+    }
+
+    // subclasses that compute the edge numerators on the fly pass edges = false (no per-vertex storage at all)
+    protected Graph(Config gc, boolean materialize, boolean edges) {
 
         log.info("Creating graph object");
 
@@ -37,39 +64,31 @@ public class Graph {
 
         r = gc.r;
         vs = gc.vs;
-        epn = new int[4][vs];
-        ax = new int[2][vs];
-        xy = initXy(r, vs, gc.outer);
-
-        for (int vid = 0; vid < vs; vid++) {
-            int isInner = vid / gc.outer;
-            int idx = vid - isInner * gc.outer;
-            int cols = r + 1 - isInner;
-            // x, y is are the actual VertexStyle coordinates
-            int xArr = idx % cols, yArr = idx / cols;
-            // xArr, yArr are the VertexStyle coordinates in the array (and the screen)
-            ax[X][vid] = xArr - yArr;
-            ax[Y][vid] = cols - xArr - yArr - 1;
-            xy[ax[X][vid] + r][ax[Y][vid] + r] = vid;
+        if (edges && vs < 0)
+            throw new RuntimeException("Invalid config (radius " + r + " has too many vertices for "
+                                       + getClass().getSimpleName() + ", use graph.class=BigGraph)");
+        ep[R] = edges ? new char[vs] : null;
+        ep[D] = edges ? new char[vs] : null;
+        ax = materialize ? new int[2][vs] : null;
+        perm = materialize && !gc.layout.equals("rows") ? layout(gc) : null;
+        cid = perm == null ? null : new int[vs];
+        for (int c = 0; cid != null && c < vs; c++)
+            cid[perm[c]] = c;
+        xy = materialize ? initXy(r, vs, gc.outer) : null;
+
+        if (materialize) {
+            next[R] = initDirCacheVars(R);
+            next[D] = initDirCacheVars(D);
+            next[L] = initDirCacheVars(L);
+            next[U] = initDirCacheVars(U);
         }
 
-        next[R] = initDirCacheVars(R);
-        next[D] = initDirCacheVars(D);
-        next[L] = initDirCacheVars(L);
-        next[U] = initDirCacheVars(U);
-
         root = vid(0, 0);
 
         // fill the edge probability numerators arrays with INIT for potential edges and MAX_VALUE for non-edges
-        for (int vid = 0; vid < vs; vid++) {
-            epn[R][vid] = isNotAt(R, vid) ? INIT : MAX_VALUE;
-            epn[D][vid] = isNotAt(D, vid) && (x(vid) + y(vid)) % (gc.skip + 1) == 0 ? INIT : MAX_VALUE;
-        }
-
-        // copy the edge probability numerators from right and down to left and up
-        for (int vid = 0; vid < vs; vid++) {
-            epn[L][vid] = isNotAt(L, vid) ? epn[R][next(vid, L)] : MAX_VALUE;
-            epn[U][vid] = isNotAt(U, vid) ? epn[D][next(vid, U)] : MAX_VALUE;
+        for (int vid = 0; edges && vid < vs; vid++) {
+            ep[R][vid] = isNotAt(R, vid) ? UNSET : NONE;
+            ep[D][vid] = isNotAt(D, vid) && (x(vid) + y(vid)) % (gc.skip + 1) == 0 ? UNSET : NONE;
         }
     }
 
@@ -77,6 +96,116 @@ public class Graph {
         return (int) Math.ceil((Math.log(x) / Math.log(2)));
     }
 
+    // a root of the sweeps on one realization (gc.roots) and the targets translated to it
+    public record Root(int vid, int[] targets) {
+    }
+
+    // the origin and gc.roots - 1 vertices evenly spread on the diamond of radius m = r - 2 * (largest target
+    // distance tl), so the translated targets keep at least tl to the boundary, as the origin targets do, and the
+    // boundary does not shorten the sweeps of the other roots more than the first one. m and the offsets keep x + y
+    // a multiple of skip + 1, so every root sees the same lattice
+    public static Root[] roots(Config gc, Graph g, int[] targets) {
+        Root[] roots = new Root[gc.roots];
+        roots[0] = new Root(g.root, targets);
+        int tl = 0, s = gc.skip + 1;
+        for (int vid : targets)
+            tl = Math.max(tl, Math.abs(g.x(vid)) + Math.abs(g.y(vid)));
+        int m = Math.max(gc.r - 2 * tl, 0) / s * s;
+        if (gc.roots > 1 && 4L * m < (long) (gc.roots - 1) * s)
+            throw new RuntimeException("Invalid config (no room for " + gc.roots + " roots with targets up to distance "
+                                       + tl + " in radius " + gc.r + ")");
+        for (int k = 1; k < gc.roots; k++) {
+            int t = (int) (4L * m * (k - 1) / (gc.roots - 1)), x, y;
+            do { // the ring point t, moved on to the next one with x + y a multiple of s
+                int q = t / m, i = t % m;
+                x = q == 0 ? m - i : q == 1 ? -i : q == 2 ? i - m : i;
+                y = q == 0 ? i : q == 1 ? m - i : q == 2 ? -i : i - m;
+                t = (t + 1) % (4 * m);
+            } while ((x + y) % s != 0);
+            int[] ts = new int[targets.length];
+            for (int tid = 0; tid < targets.length; tid++)
+                ts[tid] = g.vid(g.x(targets[tid]) + x, g.y(targets[tid]) + y);
+            roots[k] = new Root(g.vid(x, y), ts);
+        }
+        return roots;
+    }
+
+    // the targets folded into classes by the symmetries of the lattice around the root: the stores see one target
+    // per class (reps, with canonical coordinates where the class has them) whose cells aggregate all its members
+    public record Fold(int[] reps, int[][] members) {
+    }
+
+    // one class per target unless gc.fold
+    public static Fold fold(Config gc, Graph g, int[] targets) {
+        int[] syms = gc.fold ? symmetries(gc.skip) : new int[]{ 0 };
+        Long2IntOpenHashMap classes = new Long2IntOpenHashMap(); // canonical key to class
+        classes.defaultReturnValue(-1);
+        List<IntArrayList> members = new ArrayList<>();
+        IntArrayList reps = new IntArrayList();
+        for (int tid = 0; tid < targets.length; tid++) {
+            int x = g.x(targets[tid]), y = g.y(targets[tid]);
+            long key = Long.MIN_VALUE;
+            for (int sym : syms) {
+                int[] p = image(sym, x, y);
+                key = Math.max(key, key(p[X], p[Y]));
+            }
+            int c = classes.get(key);
+            if (c < 0) {
+                classes.put(key, c = members.size());
+                members.add(new IntArrayList());
+                reps.add(targets[tid]);
+            }
+            members.get(c).add(tid);
+            if (key(x, y) == key)
+                reps.set(c, targets[tid]);
+        }
+        if (gc.fold)
+            log.info("Folded {} targets into {} classes by {} symmetries", targets.length, reps.size(), syms.length);
+        return new Fold(reps.toIntArray(), members.stream().map(IntArrayList::toIntArray).toArray(int[][]::new));
+    }
+
+    // order preserving key of (x, y)
+    private static long key(int x, int y) {
+        return (long) x << 32 | y - (long) MIN_VALUE;
+    }
+
+    // the symmetries of the square lattice around the origin (bit 0: swap x and y, bit 1: negate x, bit 2: negate
+    // y) that map the existing edges to existing edges. the down edges exist where x + y is a multiple of skip + 1,
+    // a pattern with that period, so a window of two periods around the origin decides
+    static int[] symmetries(int skip) {
+        int s = skip + 1, w = 2 * s + 1;
+        IntArrayList syms = new IntArrayList();
+        for (int sym = 0; sym < 8; sym++) {
+            boolean ok = true;
+            for (int x = -w; x <= w && ok; x++)
+                for (int y = -w; y <= w && ok; y++)
+                    for (int dir = R; dir <= D && ok; dir++) {
+                        int nx = dir == R ? x + 1 : x, ny = dir == R ? y : y - 1;
+                        int[] p = image(sym, x, y), q = image(sym, nx, ny);
+                        ok = edge(x, y, nx, ny, s) == edge(p[X], p[Y], q[X], q[Y], s);
+                    }
+            if (ok)
+                syms.add(sym);
+        }
+        return syms.toIntArray();
+    }
+
+    static int[] image(int sym, int x, int y) {
+        if ((sym & 1) != 0) {
+            int t = x;
+            x = y;
+            y = t;
+        }
+        return new int[]{ (sym & 2) != 0 ? -x : x, (sym & 4) != 0 ? -y : y };
+    }
+
+    // the lattice has the edge between the neighbours (x1, y1) and (x2, y2)
+    private static boolean edge(int x1, int y1, int x2, int y2, int s) {
+        if (y1 == y2)
+            return true;
+        return y1 > y2 ? (x1 + y1) % s == 0 : (x2 + y2) % s == 0; // a down edge of the upper vertex
+    }
+
     public static int[] targets(Config gc, Graph g) {
 
         log.info("Creating targets array");
@@ -117,17 +246,87 @@ public class Graph {
         log.info("Initializing graph object with seed {}", seed);
         
         pn = gc.from;
-        rng.setSeed(seed);
         // fill the edge probability numerators array with random values from 0 to DIV
-        for (int vid = 0; vid < vs; vid++) {
-            if (epn[R][vid] != MAX_VALUE) epn[R][vid] = rng.nextInt(gc.div + 1);
-            if (epn[D][vid] != MAX_VALUE) epn[D][vid] = rng.nextInt(gc.div + 1);
+        // (left and up numerators are read from the right and down edges of the neighbours)
+        if (gc.rng.equals("legacy")) {
+            rng.setSeed(seed);
+            for (int c = 0, vid; c < vs; c++) { // in the row layout order
+                vid = perm == null ? c : perm[c];
+                if (ep[R][vid] != NONE) ep[R][vid] = (char) rng.nextInt(gc.div + 1);
+                if (ep[D][vid] != NONE) ep[D][vid] = (char) rng.nextInt(gc.div + 1);
+            }
+        } else { // counter based: each value depends only on (seed, vid, dir), so chunks can be filled in any order
+            long s = mix(seed);
+            IntStream.range(0, (vs + CHUNK - 1) / CHUNK).parallel().forEach(c -> {
+                for (int vid = c * CHUNK, end = Math.min(vs, vid + CHUNK); vid < end; vid++) {
+                    if (ep[R][vid] != NONE) ep[R][vid] = (char) epn(s, cid(vid), R, gc.div + 1);
+                    if (ep[D][vid] != NONE) ep[D][vid] = (char) epn(s, cid(vid), D, gc.div + 1);
+                }
+            });
+        }
+    }
+
+    // uniform value in [0, bound) for the edge (vid, dir) of the realization with the (mixed) seed s
+    public static int epn(long s, long vid, int dir, int bound) {
+        return (int) ((mix(s + GOLDEN * (2L * vid + dir + 1)) >>> 32) * bound >>> 32);
+    }
+
+    // splitmix64 finalizer (mix(seed) is the s of epn)
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // row layout vid of vid. it keys the edge values, so every layout samples the same graphs
+    public int cid(int vid) {
+        return cid == null ? vid : cid[vid];
+    }
+
+    // new vid of every row layout vid, in the order of the lattice points along the curve of gc.layout
+    private static int[] layout(Config gc) {
+        int r = gc.r, n = Integer.highestOneBit(2 * r) << 1; // curve side (power of 2 > 2r)
+        long[] keys = new long[gc.vs];
+        for (int c = 0; c < gc.vs; c++) {
+            int isInner = c / gc.outer, idx = c - isInner * gc.outer, cols = r + 1 - isInner;
+            int xArr = idx % cols, yArr = idx / cols;
+            keys[c] = curve(gc.layout, xArr - yArr + r, cols - xArr - yArr - 1 + r, n) << 31 | c;
         }
-        // copy the right and down numerators to the corresponding left and up numerators
-        for (int vid = 0; vid < vs; vid++) {
-            epn[L][vid] = isNotAt(L, vid) ? epn[R][next(vid, L)] : MAX_VALUE;
-            epn[U][vid] = isNotAt(U, vid) ? epn[D][next(vid, U)] : MAX_VALUE;
+        Arrays.parallelSort(keys);
+        int[] perm = new int[gc.vs];
+        for (int vid = 0; vid < gc.vs; vid++)
+            perm[(int) (keys[vid] & MAX_VALUE)] = vid;
+        return perm;
+    }
+
+    // index of the point (x, y), 0 <= x, y < n, on the morton (z-order) or hilbert curve over an n x n square
+    static long curve(String layout, int x, int y, int n) {
+        if (layout.equals("morton"))
+            return spread(x) | spread(y) << 1;
+        long d = 0;
+        for (int s = n >>> 1; s > 0; s >>>= 1) {
+            int rx = (x & s) > 0 ? 1 : 0, ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            if (ry == 0) { // rotate the quadrant
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
         }
+        return d;
+    }
+
+    // the 16 low bits of v at the even bit positions
+    private static long spread(int v) {
+        long z = v & 0xFFFFL;
+        z = (z | z << 8) & 0x00FF00FFL;
+        z = (z | z << 4) & 0x0F0F0F0FL;
+        z = (z | z << 2) & 0x33333333L;
+        return (z | z << 1) & 0x55555555L;
     }
 
     public int vid(int x, int y) {
@@ -138,8 +337,13 @@ public class Graph {
         this.pn = pn;
     }
 
+    // move the root for another sweep on the same realization
+    public void root(int vid) {
+        root = vid;
+    }
+
     public boolean have(int dir, int vid) {
-        return epn[dir][vid] <= pn;
+        return isEdgeEnabled(vid, dir);
     }
 
     public boolean isNotAt(int dir, int vid) {
@@ -156,11 +360,22 @@ public class Graph {
         return next[dir][vid];
     }
 
+    // raw right / down edge numerators (compact, NONE = 0xFFFF for non-edges) and neighbour arrays for the fused
+    // kernels. the neighbour arrays are null if the graph is not materialized
+    public char[] ep(int dir) {
+        return ep[dir];
+    }
+
+    public int[] next(int dir) {
+        return next[dir];
+    }
+
     protected int[][] initXy(int r, int vs, int outer) {
         int[][] xy = new int[2 * r + 1][2 * r + 1];
-        for (int vid = 0; vid < vs; vid++) {
-            int isInner = vid / outer;
-            int idx = vid - isInner * outer;
+        for (int c = 0, vid; c < vs; c++) {
+            vid = perm == null ? c : perm[c];
+            int isInner = c / outer;
+            int idx = c - isInner * outer;
             int cols = r + 1 - isInner;
             // x, y is are the actual VertexStyle coordinates
             int xArr = idx % cols, yArr = idx / cols;
@@ -181,13 +396,36 @@ public class Graph {
 
     public int dir(int src, int dst) {
         for (int dir = 0; dir < 4; dir++)
-            if (next[dir][src] == dst)
+            if (next(src, dir) == dst)
                 return dir;
         throw new IllegalArgumentException(String.format("%d and %d are not neighbors", src, dst));
     }
 
     public int epn(int vid, int dir) {
-        return epn[dir][vid];
+        if (dir >= L && (vid = next(vid, dir)) < 0) // left and up edges are stored at the neighbour
+            return MAX_VALUE;
+        char e = ep[dir & 1][vid];
+        return e == NONE ? MAX_VALUE : e == UNSET ? INIT : e;
+    }
+
+    // counting sort of the right (R) or down (D) edges by their probability numerators: fills a with the vids of
+    // the edges in increasing numerator order and off[p] with the index in a of the first edge with numerator p,
+    // so the edges with numerators up to pn are a[0 .. off[pn + 1]). off must have div + 2 entries
+    public int sort(int[] a, int[] off, int dir) {
+        char[] e = ep[dir];
+        int div = gc.div;
+        Arrays.fill(off, 0);
+        for (int vid = 0; vid < vs; vid++)
+            if (e[vid] <= div)
+                off[e[vid] + 1]++;
+        for (int p = 1; p < off.length; p++)
+            off[p] += off[p - 1];
+        for (int vid = 0; vid < vs; vid++)
+            if (e[vid] <= div)
+                a[off[e[vid]]++] = vid; // moves off[p] to the start of p + 1
+        System.arraycopy(off, 0, off, 1, off.length - 1);
+        off[0] = 0;
+        return off[off.length - 1];
     }
 
     public int pn() {
@@ -195,7 +433,10 @@ public class Graph {
     }
 
     public boolean isEdgeEnabled(int src, int dir) {
-        return epn(src, dir) <= pn();
+        // pn never exceeds Config.MAX_DIV, so the raw compact values can be compared directly
+        if (dir >= L && (src = next(src, dir)) < 0)
+            return false;
+        return ep[dir & 1][src] <= pn;
     }
 
     public int x(int vid) {
@@ -24,11 +24,11 @@ public class Main {
             System.setErr(new PrintStream(gc.stderr));
         }
 
-        Graph g = new Graph(gc);
+        Graph g = Graph.load(gc);
         int[] targets = Graph.targets(gc, g);
         try (Decs decs = new Decs(gc, g, targets); SPT spt = decs.dec(SPT.load(gc, g, gc.spt))) {
             stats = decs.stats;
-            Sim sim = decs.dec(new SimBase(gc, spt, targets)); // create and decorate the sim object
+            Sim sim = decs.dec(new SimBase(gc, g, spt, targets)); // create and decorate the sim object
             sim.run(gc.seed); // run the simulation
         } catch (Exception e) {
             throw new RuntimeException(e);
@@ -41,20 +41,29 @@ public class Main {
 
     public static void print(String fmt, Object... args) {
         String s = String.format(fmt, args);
-        if (stats == null || stats.isRedirected)
-            System.out.print(s);
-        if (stats != null)
-            stats.print(s);
-        len += s.length();
+        synchronized (console()) {
+            if (stats == null || stats.isRedirected)
+                System.out.print(s);
+            if (stats != null)
+                stats.print(s);
+            len += s.length();
+        }
     }
 
     public static void clear() {
-        String back = "\b".repeat(len);
-        String s = back + " ".repeat(len) + back;
-        System.out.print(s);
-        if (stats != null)
-            stats.print(s);
-        len = 0;
+        synchronized (console()) {
+            String back = "\b".repeat(len);
+            String s = back + " ".repeat(len) + back;
+            System.out.print(s);
+            if (stats != null)
+                stats.print(s);
+            len = 0;
+        }
+    }
+
+    // the lock of the console writes, shared with the stats reporter thread
+    private static Object console() {
+        return stats != null ? stats.out : System.out;
     }
 
     public static String indArrToString(int[] a, int[] vals, int start, int end, int count) {
@@ -6,6 +6,8 @@ import percolation.util.Queue;
 import static java.lang.Class.forName;
 
 public interface SPT extends AutoCloseable {
+    int CLUSTERS = 3; // cluster metrics: root cluster size, largest cluster size, 1 if the root cluster reached the boundary
+
     static SPT load(Config gc, Graph g, String spt) throws Exception {
         return (SPT) forName(spt.indexOf('.') == -1 ? "percolation.spts." + spt : spt)
                 .getMethod("create", Config.class, Graph.class).invoke(null, gc, g);
@@ -21,5 +23,12 @@ public interface SPT extends AutoCloseable {
     int dequeue(Queue q);
     int dist(int vid);
     int qsize();
+    default int lanes() { return 1; } // realizations advanced together (seeds seed .. seed + lanes - 1)
+    default int dist(int vid, int lane) { return dist(vid); }
+    default void root(int vid) { // restart from another root on the current realization (before preUpdate(from))
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support multiple roots");
+    }
+    // the cluster metrics after the last update (CLUSTERS values, see UnionFind), or null if they are not tracked
+    default int[] clusters() { return null; }
     @Override default void close() throws Exception {};
 }
@@ -17,4 +17,24 @@ public interface Sim extends Store {
     default void save(int pn, int vid, int x, int y, long dsum, int dcnt) throws SQLException {
         // do nothing
     }
+    // runs completed by the last run(seed), fewer than gc.runs if it stopped on gc.precision
+    default int completed() {
+        return 0;
+    }
+    // the runs among them that ran the step pi (fewer with gc.drop)
+    default int completed(int pi) {
+        return 0;
+    }
+    // record the commit number of a dump in its transaction (see Checkpoint)
+    default void commit(long commit) throws SQLException {
+        // do nothing
+    }
+    // the last commit number recorded, 0 if the store does not record them
+    default long committed() throws SQLException {
+        return 0;
+    }
+    // sum of a cluster metric (SPT.clusters) over cnt realizations
+    default void cluster(int pi, int metric, long sum, int cnt) throws SQLException {
+        // do nothing
+    }
 }
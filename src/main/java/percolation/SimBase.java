@@ -3,10 +3,21 @@ package percolation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import percolation.db.Store;
+import percolation.util.Checkpoint;
 import percolation.util.Config;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 import static java.lang.Integer.*;
 
@@ -20,6 +31,19 @@ public class SimBase implements Sim {
     private Store store;
     private final SPT spt;
     private final int[] targets;
+    private final Graph.Root[] roots; // the sweeps of each run (gc.roots)
+    private int[] rooted; // targets of the current root
+    private final int[][] members; // the targets of each class, the stores see the class as the target (gc.fold)
+    private final int width; // aggregate columns: the target classes, then the cluster metrics (SPT.clusters)
+    private int lanes = 1; // realizations of the current run that are aggregated (see SPT.lanes)
+    private Checkpoint checkpoint; // null if disabled
+    private long commits; // commit number of the last dump (see Checkpoint), continued from the store's
+    private final BitSet done = new BitSet(), resumed = new BitSet(); // completed runs, and those restored on resume
+    private final Moments moments; // distance moments of all runs for the confidence intervals (null if disabled)
+    private final BitSet dropped = new BitSet(); // converged probability indices skipped by the next runs
+    private final int[] ran; // completed runs per probability index (fewer than done with gc.drop)
+    private volatile boolean converged; // all probabilities converged, no more runs are started
+    private int sampled; // realizations added to the moments
 
     @Override
     public Sim set(Sim dec) {
@@ -42,13 +66,35 @@ public class SimBase implements Sim {
     }
 
     public SimBase(Config gc, SPT spt, int[] targets) {
+        this(gc, null, spt, targets);
+    }
+
+    // g gives the lattice distances of the targets, the other roots and the target classes, required with
+    // gc.precision, gc.roots or gc.fold
+    public SimBase(Config gc, Graph g, SPT spt, int[] targets) {
         this.spt = spt;
         this.targets = targets;
         this.gc = gc;
         dec = this;
 
+        if ((gc.precision > 0 || gc.roots > 1 || gc.fold) && g == null)
+            throw new IllegalArgumentException("runs.precision, roots and targets.fold require the graph of the targets");
+        members = g != null ? Graph.fold(gc, g, targets).members()
+                : IntStream.range(0, targets.length).mapToObj(tid -> new int[]{ tid }).toArray(int[][]::new);
+        width = members.length + (spt.clusters() == null ? 0 : SPT.CLUSTERS);
         if (gc.save != 0)
-            store = new Aggs(new long[gc.ps][targets.length], new int[gc.ps][targets.length]);
+            store = new Aggs(new long[gc.ps][width], new int[gc.ps][width]);
+        roots = g == null ? new Graph.Root[]{ new Graph.Root(-1, targets) } : Graph.roots(gc, g, targets);
+        rooted = targets;
+        ran = new int[gc.ps];
+        moments = gc.precision > 0 ? new Moments(lengths(g, targets)) : null;
+    }
+
+    private static int[] lengths(Graph g, int[] targets) {
+        int[] ls = new int[targets.length];
+        for (int tid = 0; tid < targets.length; tid++)
+            ls[tid] = Math.abs(g.x(targets[tid])) + Math.abs(g.y(targets[tid]));
+        return ls;
     }
 
     @Override
@@ -56,43 +102,285 @@ public class SimBase implements Sim {
 
         log.info("Running simulation with seed {}", seed);
 
-        for (int run = 0; run < gc.runs; run++)
-            dec.run(seed++, run);
-        if (gc.dbUrl != null && (gc.save == -2 || gc.save > 0))
-            dec.dump(true);
+        dropped.clear();
+        Arrays.fill(ran, 0);
+        converged = false;
+        sampled = 0;
+        if (moments != null)
+            moments.clear();
+        try (Checkpoint cp = checkpoint(seed)) {
+            checkpoint = cp;
+            if (gc.threads > 1 && gc.runs > 1)
+                runParallel(seed);
+            else
+                for (int run = 0; run < gc.runs && !converged; run += spt.lanes())
+                    if (!resumed.get(run))
+                        dec.run(seed + run, run);
+            if (gc.persist && (gc.save == -2 || gc.save > 0)) {
+                dec.dump(true);
+                settle();
+                save(); // the aggregates are in the db now
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            checkpoint = null;
+            if (store instanceof Aggs aggs)
+                aggs.close(); // wait for the final flush
+        }
+    }
+
+    @Override
+    public int completed() {
+        return done.cardinality();
+    }
+
+    @Override
+    public int completed(int pi) {
+        return ran[pi];
+    }
+
+    // open the checkpoint file (null if disabled) and restore the completed runs and the aggregates if resuming.
+    // the aggregates are dropped if the dump that saved the checkpoint was committed before the crash
+    private Checkpoint checkpoint(long seed) throws IOException, SQLException {
+        done.clear();
+        resumed.clear();
+        if (gc.checkpoint == null)
+            return null;
+        Path file = Path.of(gc.checkpoint);
+        if (!gc.resume)
+            Files.deleteIfExists(file);
+        Checkpoint cp = new Checkpoint(file, seed, gc.runs, gc.ps, width);
+        Aggs aggs = (Aggs) store; // checkpoints require save.every != 0
+        commits = dec.committed();
+        if (gc.resume && cp.load(done, aggs.tds, aggs.tdc)) {
+            resumed.or(done);
+            Arrays.fill(ran, done.cardinality()); // no runs.drop on resume, the runs ran every step
+            if (commits >= cp.commit()) {
+                log.info("Checkpoint aggregates already committed ({})", cp.commit());
+                aggs.clear();
+            }
+        }
+        return cp;
+    }
+
+    // account the runs [run, run + lanes), marked done before their dump, with the probabilities in dropped skipped,
+    // and save the checkpoint. the db must hold everything dumped so far
+    private void completed(int run, int lanes, BitSet dropped) {
+        for (int pi = dropped.nextClearBit(0); pi < gc.ps; pi = dropped.nextClearBit(pi + 1))
+            ran[pi] += lanes;
+        save();
+        if (moments != null)
+            converge(lanes);
+    }
+
+    // drop the probabilities whose stretch confidence intervals are narrow enough (with gc.drop), and stop the
+    // simulation once all of them are. the first probability is never dropped, the incremental engines start there
+    private void converge(int lanes) {
+        sampled += lanes;
+        if (sampled < gc.minRuns)
+            return;
+        boolean all = true;
+        for (int pi = 0, pn = gc.from; pi < gc.ps; pi++, pn += gc.step) {
+            if (dropped.get(pi))
+                continue;
+            if (!moments.converged(pi))
+                all = false;
+            else if (gc.drop && pi > 0) {
+                dropped.set(pi);
+                log.info("p={}/{} converged after {} runs (stretch within {})", pn, gc.div, sampled, gc.precision);
+            }
+        }
+        if (all) {
+            converged = true;
+            log.info("All probabilities converged after {} runs (stretch within {})", sampled, gc.precision);
+        }
+    }
+
+    // the aggregates are in the db once the next dump is committed
+    private void save() {
+        if (checkpoint != null && store instanceof Aggs aggs)
+            checkpoint.save(done, aggs.tds, aggs.tdc, commits + 1);
     }
 
     @Override
     public void run(long seed, int run) throws SQLException {
+        lanes = Math.min(spt.lanes(), gc.runs - run);
+        settle();
         dec.exp(seed); // create a new experiment in the db
         spt.init(seed); // initialize the graph and the spt class
         log.info("Simulation run {} with seed {} started", run + 1, seed);
-        for (int pi = 0, pn = gc.from; pi < gc.ps; pi++, pn += gc.step)
-            dec.run(pi, pn); // pi = probability index, pn = probability numerator
-        if (gc.dbUrl != null && gc.save == -1)
-            dec.dump(true);
+        for (Graph.Root root : roots) {
+            if (roots.length > 1)
+                spt.root(root.vid()); // the realization is reused by all the roots
+            rooted = root.targets();
+            for (int pi = 0, pn = gc.from; pi < gc.ps; pi++, pn += gc.step)
+                if (!dropped.get(pi))
+                    dec.run(pi, pn); // pi = probability index, pn = probability numerator
+        }
+        done.set(run, run + lanes); // the checkpoint of the dump holds the run with its aggregates
+        if (gc.persist && (gc.save == -1 || gc.save > 0 && checkpoint != null))
+            dec.dump(gc.save == -1); // with a checkpoint the timed dumps are done between the runs
+        settle();
         dec.exp(true);
+        completed(run, lanes, dropped);
+    }
+
+    // wait for the background flush in progress, so the db is never used by two threads at once
+    private void settle() throws SQLException {
+        if (store instanceof Aggs aggs)
+            aggs.await();
     }
 
     @Override
     public void run(int pi, int pn) throws SQLException {
         log.trace("Probability numerator: {}", pn);
+        run(spt, store, moments, rooted, pi, pn, lanes);
+        if (gc.persist && gc.save > 0 && checkpoint == null)
+            dec.dump(false);
+    }
+
+    private void run(SPT spt, Store store, Moments moments, int[] targets, int pi, int pn, int lanes)
+            throws SQLException {
         spt.preUpdate(pn);
         spt.update(pn);
-        for (int tid = 0, vid; tid < targets.length; tid++) // tid = target id
-            if (spt.dist(vid = targets[tid]) != MAX_VALUE)
-                store.save(pi, tid, spt.dist(vid), 1);
-        if (gc.dbUrl != null && gc.save > 0)
-            dec.dump(false);
+        for (int c = 0; c < members.length; c++) { // c = target class, the target id of the stores
+            long csum = 0;
+            int ccnt = 0;
+            for (int tid : members[c]) { // tid = target id
+                long dsum = 0, dsq = 0;
+                int dcnt = 0;
+                for (int lane = 0, dist; lane < lanes; lane++)
+                    if ((dist = spt.dist(targets[tid], lane)) != MAX_VALUE) {
+                        dsum += dist;
+                        dsq += (long) dist * dist;
+                        dcnt++;
+                    }
+                if (dcnt > 0 && moments != null)
+                    moments.add(pi, tid, dsum, dsq, dcnt);
+                csum += dsum;
+                ccnt += dcnt;
+            }
+            if (ccnt > 0)
+                store.save(pi, c, csum, ccnt);
+        }
+        int[] clusters = spt.clusters();
+        if (clusters != null)
+            for (int m = 0; m < clusters.length; m++)
+                save(store, pi, members.length + m, clusters[m], 1);
+    }
+
+    // save a cell to an aggregation store, or to the stores of the decorators: the columns after the target
+    // classes hold the cluster metrics, which have no target
+    private void save(Store to, int pi, int col, long sum, int cnt) throws SQLException {
+        if (col < members.length || to instanceof Aggs)
+            to.save(pi, col, sum, cnt);
+        else
+            ((Sim) to).cluster(pi, col - members.length, sum, cnt);
+    }
+
+    // run the experiments on gc.threads workers, each with its own graph, spt and aggregation arrays. seeds are
+    // handed out in the sequential order (seed + run) and every finished run is merged into the shared store
+    // under the sim lock, so the aggregated results are identical to the sequential ones
+    private void runParallel(long seed) throws SQLException {
+
+        log.info("Running {} runs on {} threads", gc.runs, gc.threads);
+
+        AtomicInteger next = new AtomicInteger(0);
+        List<Worker> workers = new ArrayList<>(gc.threads);
+        ExecutorService es = Executors.newFixedThreadPool(gc.threads);
+        try {
+            for (int i = 0; i < gc.threads; i++)
+                workers.add(new Worker(i == 0 ? spt : SPT.load(gc, Graph.load(gc), gc.spt), seed, next));
+            for (Future<Void> f : es.invokeAll(workers))
+                f.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqle)
+                throw sqle;
+            throw new RuntimeException(e.getCause());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            es.shutdown();
+            for (Worker w : workers)
+                w.close();
+        }
     }
 
     @Override public void dump(boolean force) throws SQLException {
         store.dump(force);
     }
 
-    public class Aggs implements Store {
-        private final long[][] tds; // target distances sum
-        private final int[][] tdc; // target distances count
+    private class Worker implements Callable<Void>, AutoCloseable {
+        private final SPT spt;
+        private final Aggs aggs; // per-run aggregation, drained into the shared store after each run
+        private final Moments moments; // per-run moments, drained into the shared ones (null if disabled)
+        private final BitSet dropped = new BitSet(); // SimBase.dropped when the last run was merged
+        private final long seed;
+        private final AtomicInteger next;
+
+        private Worker(SPT spt, long seed, AtomicInteger next) {
+            this.spt = spt;
+            this.seed = seed;
+            this.next = next;
+            aggs = new Aggs(new long[gc.ps][width], new int[gc.ps][width]);
+            moments = SimBase.this.moments == null ? null : new Moments(SimBase.this.moments.lengths);
+        }
+
+        @Override public Void call() throws SQLException {
+            for (int run; !converged && (run = next.getAndAdd(spt.lanes())) < gc.runs; ) {
+                if (resumed.get(run))
+                    continue;
+                int lanes = Math.min(spt.lanes(), gc.runs - run);
+                spt.init(seed + run); // initialize the graph and the spt class
+                log.info("Simulation run {} with seed {} started", run + 1, seed + run);
+                for (Graph.Root root : roots) {
+                    if (roots.length > 1)
+                        spt.root(root.vid());
+                    for (int pi = 0, pn = gc.from; pi < gc.ps; pi++, pn += gc.step)
+                        if (!dropped.get(pi))
+                            SimBase.this.run(spt, aggs, moments, root.targets(), pi, pn, lanes);
+                }
+                synchronized (SimBase.this) {
+                    settle();
+                    dec.exp(seed + run); // create a new experiment in the db
+                    aggs.drain(store);
+                    if (moments != null)
+                        moments.drain(SimBase.this.moments);
+                    done.set(run, run + lanes);
+                    if (gc.persist && gc.save == -1)
+                        dec.dump(true);
+                    else if (gc.persist && gc.save > 0)
+                        dec.dump(false);
+                    settle();
+                    dec.exp(true);
+                    completed(run, lanes, dropped);
+                    dropped.or(SimBase.this.dropped);
+                }
+            }
+            return null;
+        }
+
+        @Override public void close() {
+            if (spt != SimBase.this.spt) {
+                try {
+                    spt.close();
+                } catch (Exception e) {
+                    log.warn("Failed closing worker spt", e);
+                }
+            }
+        }
+    }
+
+    // aggregation arrays, double-buffered: a dump swaps in the spare (zeroed) pair and flushes the filled pair to the
+    // db on a background writer thread, so the simulation only waits if the previous flush is still in progress
+    public class Aggs implements Store, AutoCloseable {
+        private long[][] tds; // target distances sum
+        private int[][] tdc; // target distances count
+        private long[][] spareTds; // the pair being flushed, or zeroed after the flush (allocated on the first dump)
+        private int[][] spareTdc;
+        private ExecutorService writer; // created on the first dump
+        private Future<Void> flush = CompletableFuture.completedFuture(null); // the last flush
         private int calls, mod = 1;
         private long last = System.currentTimeMillis();
 
@@ -118,24 +406,148 @@ public class SimBase implements Sim {
         }
 
         private long dump() throws SQLException {
+            await(); // back-pressure: one flush at a time
+            if (spareTds == null) {
+                spareTds = new long[tds.length][tds[0].length];
+                spareTdc = new int[tdc.length][tdc[0].length];
+                writer = Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, "aggs-writer");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            long[][] tds = this.tds;
+            int[][] tdc = this.tdc;
+            this.tds = spareTds;
+            this.tdc = spareTdc;
+            spareTds = tds;
+            spareTdc = tdc;
+            long commit = ++commits;
+            if (checkpoint != null) // before the transaction: the runs and the pair, dropped on resume once committed
+                checkpoint.save(done, tds, tdc, commit);
+            flush = writer.submit(() -> {
+                flush(tds, tdc, commit);
+                return null;
+            });
+            return System.currentTimeMillis();
+        }
+
+        private void flush(long[][] tds, int[][] tdc, long commit) throws SQLException {
 
             log.info("Database dump started");
 
             dec.trans(false);
+            drain(tds, tdc, dec); // one transaction for the whole pair
+            dec.exp(false);
+            dec.commit(commit);
+            dec.trans(true);
+
+            log.info("Database dump finished");
+        }
+
+        // wait for the last flush and rethrow its failure
+        void await() throws SQLException {
+            try {
+                flush.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof SQLException sqle)
+                    throw sqle;
+                throw new RuntimeException(e.getCause());
+            }
+        }
+
+        @Override public void close() throws SQLException {
+            try {
+                await();
+            } finally {
+                if (writer != null)
+                    writer.shutdown();
+                writer = null;
+                spareTds = null;
+                spareTdc = null;
+            }
+        }
+
+        void clear() {
+            for (int pi = 0; pi < tds.length; pi++) {
+                Arrays.fill(tds[pi], 0);
+                Arrays.fill(tdc[pi], 0);
+            }
+        }
+
+        // move the aggregated non-empty cells to the given store and zero them
+        void drain(Store to) throws SQLException {
+            drain(tds, tdc, to);
+        }
+
+        private void drain(long[][] tds, int[][] tdc, Store to) throws SQLException {
             for (int pi = 0; pi < tds.length; pi++) {
                 for (int tid = 0; tid < tds[pi].length; tid++)
                     if (tdc[pi][tid] > 0)
-                        dec.save(pi, tid, tds[pi][tid], tdc[pi][tid]);
+                        SimBase.this.save(to, pi, tid, tds[pi][tid], tdc[pi][tid]);
                 Arrays.fill(tds[pi], 0);
                 Arrays.fill(tdc[pi], 0);
             }
-            dec.exp(false);
-            dec.trans(true);
+        }
+    }
 
-            log.info("Database dump finished");
+    // running sums of the target distances and their squares over all the runs (unlike Aggs, never drained to the
+    // db), for the confidence intervals of the stretch (the mean distance over the lattice distance, minus one)
+    class Moments {
+        private static final double Z = 1.96; // 95% confidence
+        private final int[] lengths; // lattice distances of the targets
+        private final long[][] sum, sq;
+        private final int[][] cnt;
 
-            return System.currentTimeMillis();
+        Moments(int[] lengths) {
+            this.lengths = lengths;
+            sum = new long[gc.ps][lengths.length];
+            sq = new long[gc.ps][lengths.length];
+            cnt = new int[gc.ps][lengths.length];
+        }
+
+        void add(int pi, int tid, long dsum, long dsq, int dcnt) {
+            sum[pi][tid] += dsum;
+            sq[pi][tid] += dsq;
+            cnt[pi][tid] += dcnt;
+        }
+
+        // add the sums to the given moments and zero them
+        void drain(Moments to) {
+            for (int pi = 0; pi < gc.ps; pi++)
+                for (int tid = 0; tid < lengths.length; tid++)
+                    to.add(pi, tid, sum[pi][tid], sq[pi][tid], cnt[pi][tid]);
+            clear();
+        }
+
+        void clear() {
+            for (int pi = 0; pi < gc.ps; pi++) {
+                Arrays.fill(sum[pi], 0);
+                Arrays.fill(sq[pi], 0);
+                Arrays.fill(cnt[pi], 0);
+            }
+        }
+
+        // half-width of the confidence interval of the stretch to the target (infinite below gc.minRuns samples)
+        double halfWidth(int pi, int tid) {
+            int n = cnt[pi][tid];
+            if (n < gc.minRuns)
+                return Double.POSITIVE_INFINITY;
+            double mean = (double) sum[pi][tid] / n;
+            double var = Math.max(0, (sq[pi][tid] - mean * sum[pi][tid]) / (n - 1)); // sample variance
+            return Z * Math.sqrt(var / n) / lengths[tid];
+        }
+
+        // every target but the root has gc.minRuns samples and a narrow enough interval. the far targets that are
+        // rarely reached (below the threshold) keep the runs going until they have their samples or gc.runs is done
+        boolean converged(int pi) {
+            for (int tid = 0; tid < lengths.length; tid++)
+                if (lengths[tid] > 0 && halfWidth(pi, tid) > gc.precision)
+                    return false;
+            return true;
         }
     }
 }
-
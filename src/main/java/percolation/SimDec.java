@@ -55,6 +55,31 @@ public abstract class SimDec implements Sim {
         that.save(pi, tid, dsum, dcnt);
     }
 
+    @Override
+    public int completed() {
+        return that.completed();
+    }
+
+    @Override
+    public int completed(int pi) {
+        return that.completed(pi);
+    }
+
+    @Override
+    public void commit(long commit) throws SQLException {
+        that.commit(commit);
+    }
+
+    @Override
+    public long committed() throws SQLException {
+        return that.committed();
+    }
+
+    @Override
+    public void cluster(int pi, int metric, long sum, int cnt) throws SQLException {
+        that.cluster(pi, metric, sum, cnt);
+    }
+
     @Override
     public void dump(boolean force) throws SQLException {
         that.dump(force);
@@ -0,0 +1,232 @@
+package percolation.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import percolation.Graph;
+import percolation.SPT;
+import percolation.util.Config;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.IntPredicate;
+
+import static java.nio.file.StandardOpenOption.*;
+
+// memory-mapped columnar result file, an alternative to the RES rows of the db: a header with the config and the
+// target coordinates, then the dsum column (long) and the dcnt column (int), both indexed by pi * ts + tid, and the
+// sum (long) and count (int) columns of the cluster metrics (SPT.clusters), indexed by pi * SPT.CLUSTERS + metric,
+// and the runs of each step (int), fewer than the runs in the header for the steps dropped by runs.drop.
+// saving adds to the cells, so an existing file with the same config and targets is merged into by every simulation
+public class ColumnStore implements Store, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ColumnStore.class);
+
+    private static final int MAGIC = 0x50524553; // "PRES"
+    private static final int VERSION = 3;
+    private static final int RUNS = 40; // offset of the merged runs count
+    private static final int COMMIT = 48; // offset of the last dump commit number (Sim.commit)
+    private static final int HEADER = 56; // magic, version, r, skip, from, to, step, div, ps, ts, runs, commit (long)
+
+    private final FileChannel ch;
+    private final MappedByteBuffer map;
+    private final int ps, ts;
+    private final int dsums, dcnts, csums, ccnts, pruns; // column offsets
+
+    // open the result file for the config and targets, creating it if needed
+    public static ColumnStore open(Path file, Config gc, Graph g, int[] targets) throws IOException {
+        if (file.getParent() != null)
+            Files.createDirectories(file.getParent());
+        FileChannel ch = FileChannel.open(file, CREATE, READ, WRITE);
+        boolean empty = ch.size() == 0; // new, or left empty by a failed run
+        ColumnStore cs = new ColumnStore(ch, FileChannel.MapMode.READ_WRITE, gc.ps, targets.length);
+        if (empty) {
+            int[] h = { MAGIC, VERSION, gc.r, gc.skip, gc.from, gc.to, gc.step, gc.div, gc.ps, targets.length };
+            for (int i = 0; i < h.length; i++)
+                cs.map.putInt(4 * i, h[i]);
+            for (int tid = 0; tid < targets.length; tid++) {
+                cs.map.putInt(HEADER + 8 * tid, g.x(targets[tid]));
+                cs.map.putInt(HEADER + 8 * tid + 4, g.y(targets[tid]));
+            }
+        } else if (cs.map.getInt(8) != gc.r || cs.map.getInt(12) != gc.skip || cs.map.getInt(16) != gc.from
+                   || cs.map.getInt(20) != gc.to || cs.map.getInt(24) != gc.step || cs.map.getInt(28) != gc.div
+                   || !sameTargets(cs, g, targets)) {
+            cs.close();
+            throw new IOException("Result file " + file + " was written with another config or other targets");
+        }
+
+        log.info("Result file {} opened with {} runs", file, cs.runs());
+
+        return cs;
+    }
+
+    // open an existing result file read-only
+    public static ColumnStore read(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, READ)) {
+            MappedByteBuffer h = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            if (h.getInt(0) != MAGIC || h.getInt(4) != VERSION)
+                throw new IOException("Not a result file: " + file);
+            return new ColumnStore(FileChannel.open(file, READ), FileChannel.MapMode.READ_ONLY,
+                    h.getInt(32), h.getInt(36));
+        }
+    }
+
+    private ColumnStore(FileChannel ch, FileChannel.MapMode mode, int ps, int ts) throws IOException {
+        this.ch = ch;
+        this.ps = ps;
+        this.ts = ts;
+        long size = HEADER + 8L * ts + 12L * ps * ts + 12L * ps * SPT.CLUSTERS + 4L * ps;
+        if (mode == FileChannel.MapMode.READ_WRITE && ch.size() != 0 && ch.size() != size) {
+            ch.close();
+            throw new IOException("Result file size " + ch.size() + " does not match the config (" + size + ")");
+        }
+        if (size > Integer.MAX_VALUE) {
+            ch.close();
+            throw new IOException("Result file too large: " + size + " bytes");
+        }
+        map = ch.map(mode, 0, size);
+        if (mode == FileChannel.MapMode.READ_WRITE && map.getInt(0) != 0 && map.getInt(0) != MAGIC) {
+            ch.close();
+            throw new IOException("Not a result file");
+        }
+        dsums = HEADER + 8 * ts;
+        dcnts = dsums + 8 * ps * ts;
+        csums = dcnts + 4 * ps * ts;
+        ccnts = csums + 8 * ps * SPT.CLUSTERS;
+        pruns = ccnts + 4 * ps * SPT.CLUSTERS;
+    }
+
+    private static boolean sameTargets(ColumnStore cs, Graph g, int[] targets) {
+        if (cs.map.getInt(36) != targets.length)
+            return false;
+        for (int tid = 0; tid < targets.length; tid++)
+            if (cs.x(tid) != g.x(targets[tid]) || cs.y(tid) != g.y(targets[tid]))
+                return false;
+        return true;
+    }
+
+    @Override
+    public void save(int pi, int tid, long dsum, int dcnt) {
+        int i = pi * ts + tid;
+        map.putLong(dsums + 8 * i, map.getLong(dsums + 8 * i) + dsum);
+        map.putInt(dcnts + 4 * i, map.getInt(dcnts + 4 * i) + dcnt);
+    }
+
+    public void cluster(int pi, int metric, long sum, int cnt) {
+        int i = pi * SPT.CLUSTERS + metric;
+        map.putLong(csums + 8 * i, map.getLong(csums + 8 * i) + sum);
+        map.putInt(ccnts + 4 * i, map.getInt(ccnts + 4 * i) + cnt);
+    }
+
+    // flush the columns to the disk
+    @Override
+    public void dump(boolean force) {
+        map.force();
+    }
+
+    // count completed runs
+    public void addRuns(int runs) {
+        map.putLong(RUNS, map.getLong(RUNS) + runs);
+    }
+
+    // count the completed runs that ran the step pi
+    public void addRuns(int pi, int runs) {
+        map.putInt(pruns + 4 * pi, map.getInt(pruns + 4 * pi) + runs);
+    }
+
+    public long runs() {
+        return map.getLong(RUNS);
+    }
+
+    // record the commit number of the dump being written, on the disk with the next dump(true)
+    public void commit(long commit) {
+        map.putLong(COMMIT, commit);
+    }
+
+    public long committed() {
+        return map.getLong(COMMIT);
+    }
+
+    public int runs(int pi) {
+        return map.getInt(pruns + 4 * pi);
+    }
+
+    public int ps() {
+        return ps;
+    }
+
+    public int ts() {
+        return ts;
+    }
+
+    public int pn(int pi) {
+        return map.getInt(16) + pi * map.getInt(24);
+    }
+
+    public int div() {
+        return map.getInt(28);
+    }
+
+    public int x(int tid) {
+        return map.getInt(HEADER + 8 * tid);
+    }
+
+    public int y(int tid) {
+        return map.getInt(HEADER + 8 * tid + 4);
+    }
+
+    public long dsum(int pi, int tid) {
+        return map.getLong(dsums + 8 * (pi * ts + tid));
+    }
+
+    public int dcnt(int pi, int tid) {
+        return map.getInt(dcnts + 4 * (pi * ts + tid));
+    }
+
+    public long csum(int pi, int metric) {
+        return map.getLong(csums + 8 * (pi * SPT.CLUSTERS + metric));
+    }
+
+    public int ccnt(int pi, int metric) {
+        return map.getInt(ccnts + 4 * (pi * SPT.CLUSTERS + metric));
+    }
+
+    // mean of a cluster metric over the realizations (NaN if it was not tracked)
+    public double cluster(int pi, int metric) {
+        return ccnt(pi, metric) == 0 ? Double.NaN : (double) csum(pi, metric) / ccnt(pi, metric);
+    }
+
+    // mean distance to the targets accepted by the filter (NaN if none was reached)
+    public double mean(int pi, IntPredicate tids) {
+        long dsum = 0, dcnt = 0;
+        for (int tid = 0; tid < ts; tid++)
+            if (tids.test(tid)) {
+                dsum += dsum(pi, tid);
+                dcnt += dcnt(pi, tid);
+            }
+        return dcnt == 0 ? Double.NaN : (double) dsum / dcnt;
+    }
+
+    // mean stretch to the targets at lattice distance d accepted by the filter, as in queries.sql
+    public double stretch(int pi, int d, IntPredicate tids) {
+        return mean(pi, tid -> Math.abs(x(tid)) + Math.abs(y(tid)) == d && tids.test(tid)) / d - 1;
+    }
+
+    // the targets on the axes
+    public IntPredicate axis() {
+        return tid -> x(tid) == 0 || y(tid) == 0;
+    }
+
+    // the targets on the diagonals
+    public IntPredicate diagonal() {
+        return tid -> Math.abs(x(tid)) == Math.abs(y(tid));
+    }
+
+    @Override public void close() throws IOException {
+        if (!map.isReadOnly())
+            map.force();
+        ch.close();
+    }
+}
@@ -0,0 +1,65 @@
+package percolation.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import percolation.Sim;
+import percolation.SimDec;
+import percolation.util.Config;
+
+import java.sql.SQLException;
+
+public class SimColumnDec extends SimDec {
+
+    private static final Logger log = LoggerFactory.getLogger(SimColumnDec.class);
+
+    private final ColumnStore store;
+    private final int ps;
+
+    public SimColumnDec(Config gc, Sim that, ColumnStore store) {
+        super(that);
+
+        log.info("Creating sim result file decorator");
+
+        this.store = store;
+        ps = gc.ps;
+    }
+
+    @Override
+    public void run(long seed) throws SQLException {
+        super.run(seed);
+        store.addRuns(completed()); // not gc.runs, the runs may have stopped on the precision
+        for (int pi = 0; pi < ps; pi++)
+            store.addRuns(pi, completed(pi)); // and the steps may have been dropped
+        store.dump(true);
+    }
+
+    @Override
+    public void trans(boolean done) throws SQLException {
+        super.trans(done);
+        if (done)
+            store.dump(true); // the dump is on the disk
+    }
+
+    @Override
+    public void commit(long commit) throws SQLException {
+        store.commit(commit);
+        super.commit(commit);
+    }
+
+    @Override
+    public long committed() {
+        return store.committed(); // written with the cells, in the same dump
+    }
+
+    @Override
+    public void save(int pi, int tid, long dsum, int dcnt) throws SQLException {
+        store.save(pi, tid, dsum, dcnt);
+        super.save(pi, tid, dsum, dcnt);
+    }
+
+    @Override
+    public void cluster(int pi, int metric, long sum, int cnt) throws SQLException {
+        store.cluster(pi, metric, sum, cnt);
+        super.cluster(pi, metric, sum, cnt);
+    }
+}
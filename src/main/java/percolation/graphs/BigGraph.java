@@ -0,0 +1,161 @@
+package percolation.graphs;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import percolation.Graph;
+import percolation.util.Config;
+
+import static java.lang.Integer.MAX_VALUE;
+
+// a graph for radii whose vertex count exceeds the int range (r >= 32768). vertices have long ids in the row
+// layout of Graph (the outer grid of (r + 1)^2 vertices, then the inner grid of r^2 vertices, row by row) and the
+// edge numerators are computed from (seed, id, dir) as with rng=split, so nothing is stored per vertex and a
+// realization is the same as Graph's with rng=split. the int vids of the Graph api only name the vertices the
+// rest of the simulation refers to (the root and the targets, and the vertices reached through the int api, e.g. the
+// SPT hooks), assigned by vid(x, y) on first use. it is searched by the long-indexed engines (BigBFS, BigIBFS)
+public class BigGraph extends Graph {
+
+    private final long outer, vertices;
+    private long s; // mixed seed of the realization
+    private Long2IntOpenHashMap vids; // packed coordinates to vid (created on the first vid() call)
+    private LongArrayList ids; // vid to long id
+
+    // static factory
+    public static Graph create(Config gc) {
+        return new BigGraph(gc);
+    }
+
+    protected BigGraph(Config gc) {
+        super(gc, false, false);
+        if (!gc.rng.equals("split") || !gc.layout.equals("rows"))
+            throw new RuntimeException("Invalid config (BigGraph requires rng=split and graph.layout=rows)");
+        outer = (r + 1L) * (r + 1L);
+        vertices = gc.vertices;
+        int[] targets = Graph.targets(gc, this); // number the targets after the root in a fixed order, as in every
+        if (gc.roots > 1) // worker graph, and then the other roots and their targets
+            Graph.roots(gc, this, targets);
+    }
+
+    @Override
+    public void init(long seed) {
+        pn = gc.from;
+        s = mix(seed);
+    }
+
+    public long vertices() {
+        return vertices;
+    }
+
+    // the vid of (x, y), assigned on the first call
+    @Override
+    public int vid(int x, int y) {
+        if (vids == null) { // called by the Graph constructor (root), before the fields are initialized
+            vids = new Long2IntOpenHashMap();
+            vids.defaultReturnValue(-1);
+            ids = new LongArrayList();
+        }
+        long key = (long) x << 32 | (y & 0xFFFFFFFFL);
+        int vid = vids.get(key);
+        if (vid < 0) {
+            vids.put(key, vid = ids.size());
+            ids.add(id(x, y));
+        }
+        return vid;
+    }
+
+    // the vid of a long id, assigned on the first call
+    public int vid(long id) {
+        return vid(x(id), y(id));
+    }
+
+    // long id of a vid
+    public long id(int vid) {
+        return ids.getLong(vid);
+    }
+
+    public long id(int x, int y) {
+        long d = (long) r - x - y; // twice the array row (outer grid) or one more than that (inner grid)
+        return (d & 1) == 0 ? d / 2 * (r + 1) + x + d / 2 : (r + 1L) * (r + 1L) + (d - 1) / 2 * r + x + (d - 1) / 2;
+    }
+
+    @Override
+    public int x(int vid) {
+        return x(id(vid));
+    }
+
+    @Override
+    public int y(int vid) {
+        return y(id(vid));
+    }
+
+    public int x(long id) {
+        long inner = id < outer ? 0 : 1, cols = r + 1 - inner, idx = id - inner * outer, yArr = idx / cols;
+        return (int) (idx - yArr * cols - yArr);
+    }
+
+    public int y(long id) {
+        long inner = id < outer ? 0 : 1, cols = r + 1 - inner, idx = id - inner * outer, yArr = idx / cols;
+        return (int) (cols - (idx - yArr * cols) - yArr - 1);
+    }
+
+    // neighbour of id in dir (-1 if none)
+    public long next(long id, int dir) {
+        if (id < outer) {
+            long yArr = id / (r + 1), xArr = id - yArr * (r + 1), in = outer + yArr * r + xArr;
+            return switch (dir) {
+                case R -> yArr > 0 && xArr < r ? in - r : -1;
+                case D -> yArr < r && xArr < r ? in : -1;
+                case L -> yArr < r && xArr > 0 ? in - 1 : -1;
+                case U -> yArr > 0 && xArr > 0 ? in - r - 1 : -1;
+                default -> throw new IllegalArgumentException("dir must be one of R, D, L, U");
+            };
+        }
+        long idx = id - outer, yArr = idx / r, xArr = idx - yArr * r, out = yArr * (r + 1) + xArr;
+        return switch (dir) { // inner vertices are never on the border
+            case R -> out + 1;
+            case D -> out + r + 2;
+            case L -> out + r + 1;
+            case U -> out;
+            default -> throw new IllegalArgumentException("dir must be one of R, D, L, U");
+        };
+    }
+
+    // neighbour of id in dir if the edge is open at the current numerator (-1 otherwise)
+    public long open(long id, int dir) {
+        long next = next(id, dir);
+        return next >= 0 && epn(id, next, dir) <= pn ? next : -1;
+    }
+
+    // numerator of the edge between id and its neighbour next in dir (MAX_VALUE if it is skipped). left and up
+    // edges are the right and down edges of the neighbour
+    public int epn(long id, long next, int dir) {
+        if (dir >= L)
+            id = next;
+        if ((dir & 1) == D && gc.skip > 0 && (x(id) + y(id)) % (gc.skip + 1) != 0)
+            return MAX_VALUE;
+        return epn(s, id, dir & 1, gc.div + 1);
+    }
+
+    // every call may assign a vid, use next(long, int) to walk the graph
+    @Override
+    public int next(int vid, int dir) {
+        long next = next(id(vid), dir);
+        return next < 0 ? -1 : vid(next);
+    }
+
+    @Override
+    public boolean isNotAt(int dir, int vid) {
+        return next(id(vid), dir) >= 0;
+    }
+
+    @Override
+    public int epn(int vid, int dir) {
+        long id = id(vid), next = next(id, dir);
+        return next < 0 ? MAX_VALUE : epn(id, next, dir);
+    }
+
+    @Override
+    public boolean isEdgeEnabled(int vid, int dir) {
+        return open(id(vid), dir) >= 0;
+    }
+}
@@ -0,0 +1,69 @@
+package percolation.graphs;
+
+import percolation.Graph;
+import percolation.util.Config;
+
+// a graph that derives the coordinates and the neighbours of a vertex from its vid on the fly instead of
+// materializing the next, ax and xy arrays. the vid layout is the same as in Graph: the outer grid of
+// (r + 1)^2 vertices comes first, followed by the inner grid of r^2 vertices, each stored row by row.
+// note: neighbours of an outer vertex are always inner vertices and vice versa
+public class ImplicitGraph extends Graph {
+
+    // static factory
+    public static Graph create(Config gc) {
+        return new ImplicitGraph(gc);
+    }
+
+    protected ImplicitGraph(Config gc) {
+        super(gc, false);
+        if (!gc.layout.equals("rows"))
+            throw new RuntimeException("Invalid config (ImplicitGraph supports graph.layout=rows only)");
+    }
+
+    @Override
+    public int vid(int x, int y) {
+        int d = r - x - y; // twice the array row (outer grid) or one more than that (inner grid)
+        return (d & 1) == 0 ? d / 2 * (r + 1) + x + d / 2 : gc.outer + (d - 1) / 2 * r + x + (d - 1) / 2;
+    }
+
+    @Override
+    public int next(int vid, int dir) {
+        if (vid < gc.outer) {
+            int yArr = vid / (r + 1), xArr = vid - yArr * (r + 1), in = gc.outer + yArr * r + xArr;
+            return switch (dir) {
+                case R -> yArr > 0 && xArr < r ? in - r : -1;
+                case D -> yArr < r && xArr < r ? in : -1;
+                case L -> yArr < r && xArr > 0 ? in - 1 : -1;
+                case U -> yArr > 0 && xArr > 0 ? in - r - 1 : -1;
+                default -> throw new IllegalArgumentException("dir must be one of R, D, L, U");
+            };
+        }
+        int idx = vid - gc.outer, yArr = idx / r, xArr = idx - yArr * r, out = yArr * (r + 1) + xArr;
+        return switch (dir) { // inner vertices are never on the border
+            case R -> out + 1;
+            case D -> out + r + 2;
+            case L -> out + r + 1;
+            case U -> out;
+            default -> throw new IllegalArgumentException("dir must be one of R, D, L, U");
+        };
+    }
+
+    @Override
+    public boolean isNotAt(int dir, int vid) {
+        return next(vid, dir) != -1;
+    }
+
+    @Override
+    public int x(int vid) {
+        int isInner = vid < gc.outer ? 0 : 1, cols = r + 1 - isInner, idx = vid - isInner * gc.outer;
+        int yArr = idx / cols;
+        return idx - yArr * cols - yArr;
+    }
+
+    @Override
+    public int y(int vid) {
+        int isInner = vid < gc.outer ? 0 : 1, cols = r + 1 - isInner, idx = vid - isInner * gc.outer;
+        int yArr = idx / cols;
+        return cols - (idx - yArr * cols) - yArr - 1;
+    }
+}
@@ -15,6 +15,8 @@ public class BFS implements SPT {
     protected final Graph g;
     protected final int[] dists;
     protected final Queue q;
+    protected final int[] targets; // settled targets end the search (gc.early, empty otherwise)
+    protected final boolean kernel; // the fused kernels apply (see fused())
 
     // static factory
     public static SPT create(Config gc, Graph g) {
@@ -26,6 +28,8 @@ public class BFS implements SPT {
         this.g = g;
         this.dists = dists;
         q = new IntQueue(a);
+        targets = gc.early ? Graph.targets(gc, g) : new int[0];
+        kernel = !gc.early && Kernels.supports(g) && (getClass() == BFS.class || getClass() == IBFS.class);
         dec = this;
     }
 
@@ -53,12 +57,41 @@ public class BFS implements SPT {
 
     @Override
     public void update(int pn) {
+        bfs(gc.early);
+    }
+
+    // a bfs from the root. if early is set it stops before the first level after all targets were reached, so
+    // only the distances of the vertices up to the level of the farthest target are set
+    protected void bfs(boolean early) {
+        if (!early && fused()) {
+            Kernels.search(g, g.pn(), dists, q.arr(), g.root);
+            return;
+        }
         dec.enqueue(q, g.root);
-        while (q.size() != 0)
+        for (int k = 0, level = 0; q.size() != 0; ) {
+            if (early && dists[q.first()] > level) { // first vertex of a new level
+                level = dists[q.first()];
+                while (k < targets.length && dists[targets[k]] != MAX_VALUE)
+                    k++;
+                if (k == targets.length)
+                    break;
+            }
             dec.neighbors(q, dec.dequeue(q));
+        }
         q.clear(); // reset start pos
     }
 
+    // true if no decorator is set, so the search may bypass dec (subclasses that override the per-vertex calls
+    // never use the kernels)
+    protected boolean fused() {
+        return kernel && dec == this;
+    }
+
+    @Override public void root(int vid) {
+        g.root(vid);
+        dec.reset(); // reset the distances
+    }
+
     @Override public void neighbors(Queue q, int src) {
         int dist = dists[src];
         if (dist++ != MAX_VALUE)
@@ -0,0 +1,133 @@
+package percolation.spts;
+
+import percolation.*;
+import percolation.graphs.BigGraph;
+import percolation.util.Config;
+import percolation.util.LongQueue;
+import percolation.util.OffHeapInts;
+import percolation.util.Queue;
+
+import static java.lang.Integer.MAX_VALUE;
+
+// bfs on a BigGraph: the distances are an off-heap array indexed by the long vertex ids and the queue is an
+// off-heap fifo, so the radius is only limited by the direct memory (4 bytes per vertex plus the queue). it
+// searches the graph directly, so the decorators do not see the per-vertex calls (stats min/none, no vis). the
+// per-vertex calls work on the int vids, which BigGraph assigns to every vertex they reach
+public class BigBFS implements SPT {
+    protected SPT dec;
+    protected final Config gc;
+    protected final BigGraph g;
+    protected final OffHeapInts dists;
+    protected final LongQueue.Pool pool = new LongQueue.Pool();
+    protected final LongQueue q = new LongQueue(pool);
+    protected long root;
+
+    // static factory
+    public static SPT create(Config gc, Graph g) {
+        return new BigBFS(gc, g);
+    }
+
+    protected BigBFS(Config gc, Graph g) {
+        if (!(g instanceof BigGraph))
+            throw new RuntimeException("Invalid config (" + getClass().getSimpleName() + " requires graph.class=BigGraph)");
+        this.gc = gc;
+        this.g = (BigGraph) g;
+        dists = new OffHeapInts(this.g.vertices());
+        root = this.g.id(g.root);
+        dec = this;
+    }
+
+    @Override
+    public SPT set(SPT dec) {
+        return this.dec = dec;
+    }
+
+    @Override public void init(long seed) {
+        g.init(seed);
+    }
+
+    @Override
+    public void reset() {
+        Main.print("Resetting %d vertices...", g.vertices());
+        dists.fill(MAX_VALUE);
+        dists.set(root, 0);
+        Main.clear();
+    }
+
+    @Override
+    public void preUpdate(int pn) {
+        dec.reset(); // reset the distances
+        g.update(pn); // add new edges
+    }
+
+    @Override
+    public void update(int pn) {
+        q.enqueue(root);
+        search();
+    }
+
+    // lower the distances of the vertices reachable from the queued ones (all queued vertices must have the
+    // same distance, or the distances must be processed in increasing order as in BigIBFS)
+    protected void search() {
+        while (q.size() != 0) {
+            long id = q.dequeue();
+            int dist = dists.get(id) + 1;
+            for (int dir = 0; dir < 4; dir++) {
+                long next = g.open(id, dir);
+                if (next >= 0 && dist < dists.get(next)) {
+                    dists.set(next, dist);
+                    q.enqueue(next);
+                }
+            }
+        }
+    }
+
+    @Override public void root(int vid) {
+        g.root(vid);
+        root = g.id(vid);
+        dec.reset(); // reset the distances
+    }
+
+    @Override public void neighbors(Queue q, int src) {
+        long id = g.id(src);
+        int dist = dists.get(id);
+        if (dist++ != MAX_VALUE)
+            for (int dir = 0; dir < 4; dir++) {
+                long next = g.open(id, dir);
+                if (next >= 0 && dist < dists.get(next))
+                    dec.neighbor(q, src, g.vid(next), dist);
+            }
+    }
+
+    @Override public boolean neighbor(Queue q, int src, int dst, int dist) {
+        dists.set(g.id(dst), dist);
+        dec.enqueue(q, dst);
+        return true;
+    }
+
+    @Override public void enqueue(Queue q, int vid) {
+        q.enqueue(vid);
+    }
+
+    @Override public int dequeue(Queue q) {
+        return q.dequeue();
+    }
+
+    @Override public int dist(int vid) {
+        return dists.get(g.id(vid));
+    }
+
+    public int dist(long id) {
+        return dists.get(id);
+    }
+
+    @Override public int qsize() {
+        return (int) Math.min(q.size(), MAX_VALUE);
+    }
+
+    @Override public void close() {
+        q.close();
+        pool.close();
+        dists.close();
+    }
+}
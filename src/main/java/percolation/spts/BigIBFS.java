@@ -0,0 +1,98 @@
+package percolation.spts;
+
+import percolation.*;
+import percolation.util.Config;
+import percolation.util.LongQueue;
+
+import java.util.ArrayList;
+
+import static java.lang.Integer.MAX_VALUE;
+import static percolation.Graph.*;
+
+// incremental BigBFS: after the first update, each update scans the right and down edges for those activated
+// since the previous numerator, lowers the distances of their endpoints and continues the search from them in
+// increasing distance order (distance buckets, Dial's algorithm). the edges are not sorted as in IBFS, since a
+// sorted copy would need 16 bytes per vertex, so an update costs one pass over the edges plus the search, about
+// as much as a BigBFS update
+public class BigIBFS extends BigBFS {
+    private final ArrayList<LongQueue> buckets = new ArrayList<>(); // vertices to search from by distance - base
+    private int base; // distance of buckets[0]
+    private int prev; // numerator of the previous update
+
+    // static factory
+    public static SPT create(Config gc, Graph g) {
+        return new BigIBFS(gc, g);
+    }
+
+    protected BigIBFS(Config gc, Graph g) {
+        super(gc, g);
+    }
+
+    @Override public void init(long seed) {
+        super.init(seed);
+        dec.reset(); // reset the distances
+    }
+
+    @Override public void preUpdate(int pn) {
+        g.update(pn); // add new edges
+    }
+
+    @Override
+    public void update(int pn) {
+        if (pn == gc.from) {
+            super.update(pn); // first update after reset we use the regular BFS algorithm (on the whole graph)
+        } else {
+            Main.print("Scanning %d vertices...", g.vertices());
+            base = MAX_VALUE;
+            for (long id = 0, n = g.vertices(); id < n; id++)
+                for (int dir = R; dir <= D; dir++) {
+                    long next = g.next(id, dir);
+                    int e;
+                    if (next >= 0 && (e = g.epn(id, next, dir)) > prev && e <= pn) {
+                        relax(id, next);
+                        relax(next, id);
+                    }
+                }
+            Main.print("processing queue...");
+            for (int i = 0; i < buckets.size(); i++) { // buckets are appended while they are processed
+                LongQueue b = buckets.get(i);
+                while (b.size() != 0) {
+                    long id = b.dequeue();
+                    int dist = dists.get(id);
+                    if (dist != base + i) // stale, lowered after it was queued
+                        continue;
+                    for (int dir = 0; dir < 4; dir++) {
+                        long next = g.open(id, dir);
+                        if (next >= 0)
+                            relax(id, next);
+                    }
+                }
+                b.close();
+            }
+            buckets.clear();
+            Main.clear();
+        }
+        prev = pn;
+    }
+
+    // lower the distance of dst over the open edge from src
+    private void relax(long src, long dst) {
+        int dist = dists.get(src);
+        if (dist == MAX_VALUE || ++dist >= dists.get(dst))
+            return;
+        dists.set(dst, dist);
+        if (base == MAX_VALUE)
+            base = dist;
+        // the scan may find a smaller distance after a larger one: shift the buckets
+        for (; dist < base; base--)
+            buckets.add(0, new LongQueue(pool));
+        while (buckets.size() <= dist - base)
+            buckets.add(new LongQueue(pool));
+        buckets.get(dist - base).enqueue(dst);
+    }
+
+    @Override public void close() {
+        buckets.forEach(LongQueue::close);
+        super.close();
+    }
+}
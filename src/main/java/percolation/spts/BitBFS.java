@@ -0,0 +1,210 @@
+package percolation.spts;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import percolation.*;
+import percolation.util.Config;
+import percolation.util.IntQueue;
+import percolation.util.Queue;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static java.lang.Integer.MAX_VALUE;
+import static percolation.Graph.*;
+
+
+// bit-parallel BFS over 64 realizations (lanes) of the graph at once: lane k is the realization with the seed
+// seed + k. every edge keeps a mask of the lanes in which it is enabled and every vertex a mask of the lanes in
+// which it was reached, so one level-synchronous BFS advances all lanes with word-wide and/or operations.
+// the edge values are drawn per lane from the counter based generator (rng=split), so lane k sees the same graph
+// as a run of any other spt with the seed seed + k. they are drawn once in init and kept bit-sliced: word b of an
+// edge holds bit b of the numerators of all the lanes, so the lanes open at pn follow from k = ceil(log2(div + 2)) word
+// operations per edge. distances are kept for the target vertices only
+public class BitBFS implements SPT {
+    private static final int LANES = Long.SIZE;
+    private static final int CHUNK = 1 << 16; // vertices per parallel edge update task
+    protected SPT dec;
+    private final Config gc;
+    private final Graph g;
+    private final long[] s = new long[LANES]; // mixed seed of each lane
+    private final int k; // bits per numerator, all ones marks a missing edge (larger than any pn)
+    private final long[][][] slices = new long[2][][]; // bit b of the right / down edge numerators of the lanes
+    private final long[][] open = new long[2][]; // lanes in which the right / down edge is enabled
+    private final long[] reached; // lanes in which the vertex was reached
+    private long[] cur, nxt; // lanes in which the vertex is in the current / next level
+    private IntQueue q, nq; // vertices of the current / next level
+    private int level; // distance of the next level
+    private long joined; // lanes in which the current neighbor joins the next level
+    private final Int2IntOpenHashMap slots = new Int2IntOpenHashMap(); // target vid to slot in td
+    private final long[] isTarget; // target vertices bitset
+    private final int[] td; // target distances, LANES per slot
+
+    // static factory
+    public static SPT create(Config gc, Graph g) {
+        if (!gc.rng.equals("split"))
+            throw new RuntimeException("Invalid config (BitBFS requires rng=split)");
+        return new BitBFS(gc, g, Graph.targets(gc, g));
+    }
+
+    protected BitBFS(Config gc, Graph g, int[] targets) {
+        this.gc = gc;
+        this.g = g;
+        dec = this;
+        k = 32 - Integer.numberOfLeadingZeros(gc.div + 1);
+        for (int dir = R; dir <= D; dir++) {
+            slices[dir] = new long[k][gc.vs];
+            open[dir] = new long[gc.vs];
+        }
+        reached = new long[gc.vs];
+        cur = new long[gc.vs];
+        nxt = new long[gc.vs];
+        q = new IntQueue(new int[gc.vs]);
+        nq = new IntQueue(new int[gc.vs]);
+        isTarget = new long[(gc.vs + 63) >>> 6];
+        slots.defaultReturnValue(-1);
+        for (int vid : targets)
+            if (slots.putIfAbsent(vid, slots.size()) == -1)
+                isTarget[vid >>> 6] |= 1L << vid;
+        td = new int[slots.size() * LANES];
+    }
+
+    @Override
+    public SPT set(SPT dec) {
+        return this.dec = dec;
+    }
+
+    @Override public void init(long seed) {
+        for (int lane = 0; lane < LANES; lane++)
+            s[lane] = mix(seed + lane);
+        IntStream.range(0, (gc.vs + CHUNK - 1) / CHUNK).parallel().forEach(c -> {
+            for (int vid = c * CHUNK, end = Math.min(gc.vs, vid + CHUNK); vid < end; vid++) {
+                draw(vid, R);
+                draw(vid, D);
+            }
+        });
+    }
+
+    // draw the numerators of the edge (vid, dir) in all the lanes and store them bit-sliced
+    private void draw(int vid, int dir) {
+        long[][] sl = slices[dir];
+        if (g.epn(vid, dir) == MAX_VALUE) { // no edge
+            for (int b = 0; b < k; b++)
+                sl[b][vid] = -1L;
+            return;
+        }
+        for (int b = 0; b < k; b++)
+            sl[b][vid] = 0L;
+        for (int lane = 0; lane < LANES; lane++)
+            for (int v = epn(s[lane], g.cid(vid), dir, gc.div + 1), b = 0; v != 0; v >>>= 1, b++)
+                sl[b][vid] |= (long) (v & 1) << lane;
+    }
+
+    @Override
+    public void reset() {
+        assert q.size() == 0;
+        Arrays.fill(reached, 0L);
+        Arrays.fill(td, MAX_VALUE);
+        reached[g.root] = -1L;
+        if (slots.containsKey(g.root))
+            Arrays.fill(td, slots.get(g.root) * LANES, (slots.get(g.root) + 1) * LANES, 0);
+    }
+
+    @Override
+    public void preUpdate(int pn) {
+        dec.reset(); // reset the distances
+        IntStream.range(0, (gc.vs + CHUNK - 1) / CHUNK).parallel().forEach(c -> {
+            for (int vid = c * CHUNK, end = Math.min(gc.vs, vid + CHUNK); vid < end; vid++) {
+                open[R][vid] = ~above(slices[R], vid, pn);
+                open[D][vid] = ~above(slices[D], vid, pn);
+            }
+        });
+    }
+
+    // the lanes in which the bit-sliced numerator of the edge at vid is larger than pn (compared from the top bit)
+    private long above(long[][] sl, int vid, int pn) {
+        long gt = 0L, eq = -1L;
+        for (int b = k - 1; b >= 0; b--) {
+            long x = sl[b][vid];
+            if ((pn >>> b & 1) == 0) {
+                gt |= eq & x;
+                eq &= ~x;
+            } else
+                eq &= x;
+        }
+        return gt;
+    }
+
+    @Override
+    public void update(int pn) {
+        dec.enqueue(q, g.root);
+        cur[g.root] = -1L;
+        for (level = 1; q.size() != 0; level++) {
+            while (q.size() != 0)
+                dec.neighbors(nq, dec.dequeue(q));
+            q.clear(); // reset start pos
+            for (int i = nq.start; i < nq.end; i++) // record the target distances of the next level
+                if ((isTarget[nq.a[i] >>> 6] & 1L << nq.a[i]) != 0)
+                    for (long bits = nxt[nq.a[i]], base = (long) slots.get(nq.a[i]) * LANES; bits != 0; bits &= bits - 1)
+                        td[(int) base + Long.numberOfTrailingZeros(bits)] = level;
+            IntQueue t = q;
+            q = nq;
+            nq = t;
+            long[] tl = cur;
+            cur = nxt;
+            nxt = tl;
+        }
+        q.clear(); // reset start pos
+    }
+
+    // expand src into the next level queue q, in all the lanes in which src is in the current level
+    @Override public void neighbors(Queue q, int src) {
+        long f = cur[src];
+        cur[src] = 0L;
+        for (int dir = 0; dir < 4; dir++) {
+            int dst = g.next(src, dir);
+            if (dst < 0)
+                continue;
+            long m = f & (dir < L ? open[dir][src] : open[dir & 1][dst]) & ~reached[dst];
+            if (m != 0) {
+                joined = m;
+                dec.neighbor(q, src, dst, level);
+            }
+        }
+    }
+
+    // dst joins the next level in the lanes found by neighbors (dist is the level, the same in all of them)
+    @Override public boolean neighbor(Queue q, int src, int dst, int dist) {
+        if (nxt[dst] == 0)
+            dec.enqueue(q, dst);
+        nxt[dst] |= joined;
+        reached[dst] |= joined;
+        return true;
+    }
+
+    @Override public void enqueue(Queue q, int vid) {
+        q.enqueue(vid);
+    }
+
+    @Override public int dequeue(Queue q) {
+        return q.dequeue();
+    }
+
+    @Override public int dist(int vid) {
+        return dist(vid, 0);
+    }
+
+    @Override public int lanes() {
+        return LANES;
+    }
+
+    @Override public int dist(int vid, int lane) {
+        int slot = slots.get(vid);
+        if (slot == -1)
+            throw new IllegalArgumentException("BitBFS keeps the distances of the targets only: " + vid);
+        return td[slot * LANES + lane];
+    }
+
+    @Override public int qsize() {
+        return q.size();
+    }
+}
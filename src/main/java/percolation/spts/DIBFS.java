@@ -0,0 +1,57 @@
+package percolation.spts;
+
+import percolation.*;
+import percolation.util.Config;
+import percolation.util.RadixQueue;
+
+import static java.lang.Integer.*;
+import static percolation.Graph.*;
+
+
+// incremental BFS that keeps the vertices to update in a bucket (radix) queue indexed by their distance instead
+// of sorting the auxiliary queue, so each step is linear in the number of changed vertices (up to a word-size
+// factor for the bucket redistribution)
+public class DIBFS extends IBFS {
+    protected final RadixQueue bq; // bucket queue keyed by the distances
+
+    // static factory
+    public static SPT create(Config gc, Graph g) {
+        return new DIBFS(gc, g, new int[gc.vs], new int[gc.vs]);
+    }
+
+    protected DIBFS(Config gc, Graph g, int[] dists, int[] a) {
+        super(gc, g, dists, a, new int[0]); // the auxiliary queue is not used
+        bq = new RadixQueue(dists);
+    }
+
+    @Override
+    public void update(int pn) {
+        if (pn == gc.from) {
+            super.update(pn); // first update after reset we use the regular BFS algorithm
+        } else {
+            relaxActivated(pn, R);
+            relaxActivated(pn, D);
+            while (bq.size() != 0)
+                dec.neighbors(bq, dec.dequeue(bq));
+            bq.clear(); // reset the last key
+        }
+    }
+
+    // relax both ends of every edge that was activated in the last update. the improved vertices are queued
+    // by their new distance and the rest of the graph is updated from them in increasing distance order
+    private void relaxActivated(int pn, int dir) {
+        int[] se = this.se[dir];
+        for (int i = sei[dir], end = seo[dir][pn + 1]; i < end; i++) {
+            int next = g.next(se[i], dir);
+            relax(se[i], next);
+            relax(next, se[i]);
+        }
+        sei[dir] = seo[dir][pn + 1];
+    }
+
+    private void relax(int src, int dst) {
+        int dist = dists[src];
+        if (dist != MAX_VALUE && ++dist < dists[dst])
+            dec.neighbor(bq, src, dst, dist);
+    }
+}
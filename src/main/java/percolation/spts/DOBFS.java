@@ -0,0 +1,91 @@
+package percolation.spts;
+
+import percolation.*;
+import percolation.util.Config;
+import percolation.util.Queue;
+
+import java.util.Arrays;
+
+
+// direction-optimizing BFS: each level is expanded either top-down (the frontier vertices relax their neighbours)
+// or bottom-up (the unvisited vertices look for a neighbour in the frontier), whichever touches fewer edges.
+// the frontier and the visited vertices are kept in bitsets so the bottom-up scan skips visited words at once
+public class DOBFS extends BFS {
+    private static final int ALPHA = 14; // go bottom-up when the frontier is larger than unvisited / ALPHA
+    private final long[] visited; // visited vertices (and the padding bits after the last vertex)
+    private long[] front, next; // current and next frontier (valid only after a bottom-up level)
+    private int unvisited; // number of vertices not visited yet
+
+    // static factory
+    public static SPT create(Config gc, Graph g) {
+        return new DOBFS(gc, g, new int[gc.vs], new int[gc.vs]);
+    }
+
+    protected DOBFS(Config gc, Graph g, int[] dists, int[] a) {
+        super(gc, g, dists, a);
+        int words = (gc.vs + 63) >>> 6;
+        visited = new long[words];
+        front = new long[words];
+        next = new long[words];
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        Arrays.fill(visited, 0L);
+        if ((gc.vs & 63) != 0)
+            visited[visited.length - 1] = -1L << gc.vs; // mark the padding bits as visited
+        visited[g.root >>> 6] |= 1L << g.root;
+        unvisited = gc.vs - 1;
+    }
+
+    @Override
+    public void update(int pn) {
+        boolean bottomUp = false;
+        dec.enqueue(q, g.root);
+        for (int dist = 1, size = 1; size != 0; dist++, size = q.size()) { // q holds exactly one level
+            boolean frontValid = bottomUp;
+            bottomUp = (long) size * ALPHA > unvisited;
+            if (bottomUp)
+                bottomUp(size, dist, frontValid);
+            else
+                for (int i = 0; i < size; i++)
+                    dec.neighbors(q, dec.dequeue(q));
+        }
+        q.clear(); // reset start pos
+    }
+
+    // visit the unvisited vertices that have an enabled edge to the current frontier (the size vertices in q)
+    private void bottomUp(int size, int dist, boolean frontValid) {
+        if (!frontValid)
+            Arrays.fill(front, 0L);
+        for (int i = 0; i < size; i++) {
+            int vid = dec.dequeue(q);
+            if (!frontValid)
+                front[vid >>> 6] |= 1L << vid;
+        }
+        Arrays.fill(next, 0L);
+        for (int w = 0; w < visited.length; w++) {
+            for (long bits = ~visited[w]; bits != 0; bits &= bits - 1) {
+                int dst = (w << 6) + Long.numberOfTrailingZeros(bits);
+                for (int dir = 0; dir < 4; dir++) {
+                    int src;
+                    if (g.isEdgeEnabled(dst, dir) && (front[(src = g.next(dst, dir)) >>> 6] & 1L << src) != 0) {
+                        dec.neighbor(q, src, dst, dist);
+                        next[w] |= 1L << dst;
+                        break;
+                    }
+                }
+            }
+        }
+        long[] t = front;
+        front = next;
+        next = t;
+    }
+
+    @Override public boolean neighbor(Queue q, int src, int dst, int dist) {
+        visited[dst >>> 6] |= 1L << dst;
+        unvisited--;
+        return super.neighbor(q, src, dst, dist);
+    }
+}
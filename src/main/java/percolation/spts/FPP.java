@@ -0,0 +1,72 @@
+package percolation.spts;
+
+import percolation.*;
+import percolation.util.Config;
+import percolation.util.Queue;
+import percolation.util.RadixQueue;
+
+import static java.lang.Integer.*;
+import static percolation.Graph.*;
+
+
+// first-passage percolation: the passage time of an edge is its probability numerator plus one, uniform in
+// 1 .. div + 1, so the weights come with the realization drawn by Graph.init and need no storage of their own.
+// dist(vid) is the least passage time from the root over the open edges (numerators up to pn), with pn = div
+// every edge is open, the classic model. the first update is a dijkstra on a radix queue, the later ones relax
+// the activated edges and continue from the improved vertices in increasing time order, as DIBFS does. the
+// times are ints, so the paths must stay below MAX_VALUE / (div + 1) edges
+public class FPP extends IBFS {
+    protected final RadixQueue bq; // bucket queue keyed by the passage times
+
+    // static factory
+    public static SPT create(Config gc, Graph g) {
+        return new FPP(gc, g, new int[gc.vs], new int[gc.vs]);
+    }
+
+    protected FPP(Config gc, Graph g, int[] dists, int[] a) {
+        super(gc, g, dists, a, new int[0]); // the auxiliary queue is not used
+        bq = new RadixQueue(dists);
+    }
+
+    @Override
+    public void update(int pn) {
+        if (pn == gc.from) {
+            dec.enqueue(bq, g.root); // dijkstra on the whole graph
+            sei[R] = seo[R][pn + 1];
+            sei[D] = seo[D][pn + 1];
+        } else {
+            relaxActivated(pn, R);
+            relaxActivated(pn, D);
+        }
+        while (bq.size() != 0)
+            dec.neighbors(bq, dec.dequeue(bq));
+        bq.clear(); // reset the last key
+    }
+
+    // relax both ends of every edge that was activated in the last update
+    private void relaxActivated(int pn, int dir) {
+        int[] se = this.se[dir];
+        for (int i = sei[dir], end = seo[dir][pn + 1]; i < end; i++) {
+            int next = g.next(se[i], dir), w = g.epn(se[i], dir) + 1;
+            relax(se[i], next, w);
+            relax(next, se[i], w);
+        }
+        sei[dir] = seo[dir][pn + 1];
+    }
+
+    private void relax(int src, int dst, int w) {
+        int dist = dists[src];
+        if (dist != MAX_VALUE && (dist += w) < dists[dst])
+            dec.neighbor(bq, src, dst, dist);
+    }
+
+    @Override public void neighbors(Queue q, int src) {
+        int dist = dists[src];
+        if (dist != MAX_VALUE)
+            for (int dir = 0; dir < 4; dir++) {
+                int next, time;
+                if (g.isEdgeEnabled(src, dir) && (time = dist + g.epn(src, dir) + 1) < dists[next = g.next(src, dir)])
+                    dec.neighbor(q, src, next, time);
+            }
+    }
+}
@@ -5,15 +5,19 @@ import percolation.*;
 import percolation.util.Config;
 import percolation.util.IntQueue;
 
-import java.util.stream.IntStream;
 
+import static java.lang.Integer.MAX_VALUE;
 import static percolation.Graph.*;
 
 
 public class IBFS extends BFS {
     protected final IntQueue aq; // auxiliary queue
     protected final int[][] se = new int[2][]; // sorted edges
+    protected final int[][] seo = new int[2][]; // sorted edges offsets per probability numerator
     protected final int[] sei = new int[2]; // sorted edges indices
+    private final int tl; // largest lattice distance of a target from the root (gc.early)
+    private int td; // largest target distance when the update started (gc.early)
+    private boolean sorted; // the edges of the current realization are sorted (kept for the other roots)
 
     // static factory
     public static SPT create(Config gc, Graph g) {
@@ -23,21 +27,31 @@ public class IBFS extends BFS {
     protected IBFS(Config gc, Graph g, int[] dists, int[] a, int[] aq) {
         super(gc, g, dists, a);
         this.aq = new IntQueue(aq); // auxiliary queue (on same array as the main queue)
-        se[R] = IntStream.range(0, dists.length).toArray();
-        se[D] = IntStream.range(0, dists.length).toArray();
+        se[R] = new int[dists.length];
+        se[D] = new int[dists.length];
+        seo[R] = new int[gc.div + 2];
+        seo[D] = new int[gc.div + 2];
+        int tl = 0;
+        for (int vid : targets)
+            tl = Math.max(tl, l(vid));
+        this.tl = tl;
     }
 
     @Override public void init(long seed) {
         super.init(seed);
+        sorted = false;
         dec.reset(); // reset the distances
     }
 
     @Override
     public void reset() {
         super.reset();
+        if (sorted)
+            return;
         Main.print("Sorting %d vertices...", se[R].length + se[D].length);
-        IntArrays.parallelQuickSortIndirect(se[R], g.epn[R]);
-        IntArrays.parallelQuickSortIndirect(se[D], g.epn[D]);
+        g.sort(se[R], seo[R], R);
+        g.sort(se[D], seo[D], D);
+        sorted = true;
         Main.clear();
     }
 
@@ -48,11 +62,13 @@ public class IBFS extends BFS {
     @Override
     public void update(int pn) {
         if (pn == gc.from) {
-            sei[R] = sei[D] = 0;
-            super.update(pn); // first update after reset we use the regular BFS algorithm
-            while (sei[R] < gc.vs && g.epn[R][se[R][sei[R]]] <= pn) sei[R]++;
-            while (sei[D] < gc.vs && g.epn[D][se[D][sei[D]]] <= pn) sei[D]++;
+            bfs(false); // first update after reset we use the regular BFS algorithm (on the whole graph)
+            sei[R] = seo[R][pn + 1];
+            sei[D] = seo[D][pn + 1];
         } else if (enqueueActivated(pn) > 0) {
+            td = 0;
+            for (int vid : targets)
+                td = Math.max(td, dists[vid]);
             Main.print("Sorting %d vertices... ", aq.end - aq.start);
             IntArrays.parallelQuickSortIndirect(aq.a, dists, aq.start, aq.end);
             processAuxQueue();
@@ -62,15 +78,38 @@ public class IBFS extends BFS {
 
     protected void processAuxQueue() {
         Main.print("processing queue...");
+        if (fused()) {
+            for (int i = aq.start; i < aq.end; i++)
+                Kernels.search(g, g.pn(), dists, q.arr(), aq.a[i]);
+            aq.clear();
+            return;
+        }
         while (aq.size() != 0) {
             q.enqueue(dec.dequeue(aq));
-            while (q.size() != 0)
-                dec.neighbors(q, dec.dequeue(q));
+            while (q.size() != 0) {
+                int vid = dec.dequeue(q);
+                if (!gc.early || !far(vid))
+                    dec.neighbors(q, vid);
+            }
             q.clear(); // reset start pos
         }
         aq.clear(); // reset start pos
     }
 
+    // true if no path through vid can shorten the distance of a target: vid is at least l(vid) - tl lattice steps
+    // away from every target, so dist(vid) + l(vid) - tl >= td >= dist(t) for every target t. the neighbours of
+    // such a vertex are not updated. this keeps the target distances exact in the later updates too, since the
+    // condition only gets stronger as the target distances decrease, and vid is queued again if its own distance
+    // decreases
+    private boolean far(int vid) {
+        return td != MAX_VALUE && dists[vid] + Math.max(0, l(vid) - tl) >= td;
+    }
+
+    // lattice distance from the root
+    private int l(int vid) {
+        return Math.abs(g.x(vid)) + Math.abs(g.y(vid));
+    }
+
     private int enqueueActivated(int pn) {
         enqueueActivated(pn, R);
         enqueueActivated(pn, D);
@@ -82,10 +121,9 @@ public class IBFS extends BFS {
     // in order to update the rest of the graph
     protected void enqueueActivated(int pn, int dir) {
         //noinspection DuplicatedCode // cba to extract to a new util class or make SPT abstract
-        int[] epn = g.epn[dir], se = this.se[dir];
-        int i;
-        for (i = sei[dir]; i < se.length && epn[se[i]] <= pn; i++)
+        int[] se = this.se[dir];
+        for (int i = sei[dir], end = seo[dir][pn + 1]; i < end; i++)
             aq.enqueue(se[i], g.next(se[i], dir));
-        sei[dir] = i;
+        sei[dir] = seo[dir][pn + 1];
     }
 }
@@ -0,0 +1,51 @@
+package percolation.spts;
+
+import percolation.Graph;
+
+import static java.lang.Integer.MAX_VALUE;
+import static percolation.Graph.*;
+
+
+// fused search loops used by BFS and IBFS when no decorator is set (stats=none, no vis). they work directly on the
+// graph arrays and a plain int[] queue, so there are no calls through dec, Queue or Graph in the inner loop.
+// they visit the neighbours in the same order as BFS.neighbors, so the results are identical
+final class Kernels {
+
+    private Kernels() {
+    }
+
+    // true if g is the materialized Graph (a subclass may compute its neighbours differently)
+    static boolean supports(Graph g) {
+        return g.getClass() == Graph.class && g.next(R) != null;
+    }
+
+    // search from src, lowering the distances of the vertices reachable over edges with numerators up to pn. q
+    // must hold every vertex whose distance is lowered (at most once per vertex in a BFS from a single source)
+    static void search(Graph g, int pn, int[] dists, int[] q, int src) {
+        if (dists[src] == MAX_VALUE)
+            return;
+        char[] er = g.ep(R), ed = g.ep(D);
+        int[] nr = g.next(R), nd = g.next(D), nl = g.next(L), nu = g.next(U);
+        int head = 0, tail = 0;
+        q[tail++] = src;
+        while (head < tail) {
+            int vid = q[head++], dist = dists[vid] + 1, next;
+            if (er[vid] <= pn && dist < dists[next = nr[vid]]) {
+                dists[next] = dist;
+                q[tail++] = next;
+            }
+            if (ed[vid] <= pn && dist < dists[next = nd[vid]]) {
+                dists[next] = dist;
+                q[tail++] = next;
+            }
+            if ((next = nl[vid]) >= 0 && er[next] <= pn && dist < dists[next]) {
+                dists[next] = dist;
+                q[tail++] = next;
+            }
+            if ((next = nu[vid]) >= 0 && ed[next] <= pn && dist < dists[next]) {
+                dists[next] = dist;
+                q[tail++] = next;
+            }
+        }
+    }
+}
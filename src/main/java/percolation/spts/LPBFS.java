@@ -0,0 +1,182 @@
+package percolation.spts;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import percolation.*;
+import percolation.util.Config;
+import percolation.util.IntQueue;
+import percolation.util.Queue;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static java.lang.Integer.MAX_VALUE;
+import static percolation.Graph.*;
+
+
+// level-synchronous parallel BFS. the first update runs a BFS from the root and every later update runs one from
+// the vertices improved by the activated edges, level by level in increasing distance. large levels are split
+// into chunks expanded on the common fork-join pool, each into its own buffer, and the buffers are then merged
+// into the next level. a vertex joins the next level only once since its distance is lowered with a CAS
+public class LPBFS extends IBFS {
+    private static final VarHandle AA = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final int GRAIN = 1 << 10; // min number of level vertices per chunk
+    private static final int CHUNKS = 4 * Runtime.getRuntime().availableProcessors(); // max chunks per level
+    private IntQueue front, next; // current and next level
+    private final Buffer[] bufs = new Buffer[CHUNKS]; // next level vertices found by each chunk
+
+    // static factory
+    public static SPT create(Config gc, Graph g) {
+        return new LPBFS(gc, g, new int[gc.vs], new int[gc.vs], new int[gc.vs], new int[gc.vs]);
+    }
+
+    protected LPBFS(Config gc, Graph g, int[] dists, int[] a, int[] aq, int[] b) {
+        super(gc, g, dists, a, aq);
+        front = new IntQueue(a); // the main queue is not used
+        next = new IntQueue(b);
+        for (int i = 0; i < CHUNKS; i++)
+            bufs[i] = new Buffer();
+    }
+
+    @Override
+    public void update(int pn) {
+        if (pn == gc.from) {
+            dec.enqueue(aq, g.root);
+            sei[R] = seo[R][pn + 1];
+            sei[D] = seo[D][pn + 1];
+        } else {
+            relaxActivated(pn, R);
+            relaxActivated(pn, D);
+            if (aq.size() == 0)
+                return;
+            Main.print("Sorting %d vertices... ", aq.end - aq.start);
+            IntArrays.parallelQuickSortIndirect(aq.a, dists, aq.start, aq.end);
+        }
+        Main.print("processing levels...");
+        processLevels();
+        aq.clear(); // reset start pos
+        Main.clear();
+    }
+
+    // relax both ends of every edge that was activated in the last update and queue the improved vertices
+    private void relaxActivated(int pn, int dir) {
+        int[] se = this.se[dir];
+        for (int i = sei[dir], end = seo[dir][pn + 1]; i < end; i++) {
+            int next = g.next(se[i], dir);
+            relax(se[i], next);
+            relax(next, se[i]);
+        }
+        sei[dir] = seo[dir][pn + 1];
+    }
+
+    private void relax(int src, int dst) {
+        int dist = dists[src];
+        if (dist != MAX_VALUE && ++dist < dists[dst])
+            dec.neighbor(aq, src, dst, dist);
+    }
+
+    // expand the levels from the sources in the auxiliary queue (sorted by distance). a source whose distance
+    // was lowered after sorting has already been expanded with its new distance, and is skipped
+    private void processLevels() {
+        int[] src = aq.a;
+        int i = aq.start, end = aq.end;
+        for (int dist = 0; ; dist++) {
+            if (front.size() == 0) { // jump to the next source level
+                while (i < end && dists[src[i]] < dist)
+                    i++;
+                if (i == end)
+                    return;
+                dist = dists[src[i]];
+            }
+            for (; i < end && dists[src[i]] <= dist; i++)
+                if (dists[src[i]] == dist)
+                    dec.enqueue(front, src[i]);
+            expand();
+        }
+    }
+
+    // move the vertices of the next level from the current level to the next queue and swap them
+    private void expand() {
+        int size = front.size();
+        if (size < 2 * GRAIN) {
+            while (front.size() != 0)
+                dec.neighbors(next, dec.dequeue(front));
+        } else {
+            int chunks = Math.min(size / GRAIN, CHUNKS);
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                IntQueue view = new IntQueue(front.a); // chunk of the current level
+                view.start = front.start + (int) ((long) size * c / chunks);
+                view.end = front.start + (int) ((long) size * (c + 1) / chunks);
+                bufs[c].clear();
+                while (view.size() != 0)
+                    dec.neighbors(bufs[c], dec.dequeue(view));
+            });
+            for (int c = 0; c < chunks; c++) { // merge the buffers
+                System.arraycopy(bufs[c].a, 0, next.a, next.end, bufs[c].end);
+                next.end += bufs[c].end;
+            }
+        }
+        front.clear();
+        IntQueue t = front;
+        front = next;
+        next = t;
+    }
+
+    @Override public boolean neighbor(Queue q, int src, int dst, int dist) {
+        int before; // distance before update
+        do if ((before = (int) AA.getVolatile(dists, dst)) <= dist) return false;
+        while (!AA.compareAndSet(dists, dst, before, dist)); // lock-free update
+        dec.enqueue(q, dst);
+        return true;
+    }
+
+    // growable queue of the vertices one chunk adds to the next level
+    private static class Buffer implements Queue {
+        private int[] a = new int[GRAIN];
+        private int start, end;
+
+        @Override public void enqueue(int x) {
+            if (end == a.length)
+                a = Arrays.copyOf(a, 2 * a.length);
+            a[end++] = x;
+        }
+
+        @Override public void enqueue(int x, int y) {
+            enqueue(x);
+            enqueue(y);
+        }
+
+        @Override public int dequeue() {
+            return a[start++];
+        }
+
+        @Override public int first() {
+            return a[start];
+        }
+
+        @Override public int last() {
+            return a[end - 1];
+        }
+
+        @Override public int size() {
+            return end - start;
+        }
+
+        @Override public void clear() {
+            start = end = 0;
+        }
+
+        @Override public int[] arr() {
+            return a;
+        }
+
+        @Override public int start() {
+            return start;
+        }
+
+        @Override public int end() {
+            return end;
+        }
+    }
+}
@@ -5,12 +5,12 @@ import percolation.*;
 import percolation.util.Config;
 import percolation.util.IntQueue;
 import percolation.util.Queue;
+import percolation.util.WorkDeque;
+import percolation.util.WorkerPool;
 
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.VarHandle;
-import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.IntStream;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.lang.Integer.MAX_VALUE;
 import static percolation.Graph.*;
@@ -18,16 +18,18 @@ import static percolation.Graph.*;
 
 public class PIBFS implements SPT {
     protected SPT dec;
-    private final ExecutorService es;
-    private final CyclicBarrier start, done;
-    private final AtomicInteger task = new AtomicInteger(0);
+    private final WorkerPool pool;
+    private static final int CHUNK = 64; // vertices a worker takes from its deque at once
+    private final AtomicLong work = new AtomicLong(0); // vertices queued or being processed
+    private final Worker[] workers;
     private final Config gc;
     private final Graph g;
     private final AtomicIntArray dists;
     private final IntQueue aq;
     private final int[][] se = new int[2][]; // sorted edges
+    private final int[][] seo = new int[2][]; // sorted edges offsets per probability numerator
     private final int[] sei = new int[2]; // sorted edges indices
-    private volatile boolean shutdown = false;
+    private boolean sorted; // the edges of the current realization are sorted (kept for the other roots)
 
     // static factory
     public static SPT create(Config gc, Graph g) {
@@ -41,20 +43,21 @@ public class PIBFS implements SPT {
         this.aq = new IntQueue(aq);
         dec = this;
 
-        se[R] = IntStream.range(0, dists.length).toArray();
-        se[D] = IntStream.range(0, dists.length).toArray();
+        se[R] = new int[dists.length];
+        se[D] = new int[dists.length];
+        seo[R] = new int[gc.div + 2];
+        seo[D] = new int[gc.div + 2];
 
-        // create each thread's personal queue
-        int threads = Runtime.getRuntime().availableProcessors() / 2;
-        start = new CyclicBarrier(threads + 1);
-        done = new CyclicBarrier(threads + 1);
-        es = Executors.newFixedThreadPool(threads);
-        for (int i = 0; i < threads; i++)
-            es.execute(new Worker(new int[gc.vs]));
+        // create each thread's personal deque
+        pool = WorkerPool.create(gc);
+        workers = new Worker[pool.threads()];
+        for (int i = 0; i < workers.length; i++)
+            workers[i] = new Worker(i);
     }
 
     @Override public void init(long seed) {
         g.init(seed);
+        sorted = false;
         dec.reset(); // reset the distances
     }
 
@@ -64,12 +67,19 @@ public class PIBFS implements SPT {
         for (int i = 0; i < dists.length(); i++)
             dists.set(i, MAX_VALUE);
         dists.set(g.root, 0);
+        if (sorted)
+            return;
         Main.print("Sorting %d vertices...", se[R].length + se[D].length);
-        IntArrays.parallelQuickSortIndirect(se[R], g.epn[R]);
-        IntArrays.parallelQuickSortIndirect(se[D], g.epn[D]);
+        g.sort(se[R], seo[R], R);
+        g.sort(se[D], seo[D], D);
+        sorted = true;
         Main.clear();
     }
 
+    @Override public void root(int vid) {
+        g.root(vid); // the distances are reset by the first update
+    }
+
     @Override
     public SPT set(SPT dec) {
         return this.dec = dec;
@@ -82,17 +92,14 @@ public class PIBFS implements SPT {
     @Override
     public void update(int pn) {
         if (pn == gc.from) {
-            sei[R] = sei[D] = 0;
             dec.reset(); // reset the distances
             g.update(pn);
             dec.enqueue(aq, g.root);
             while (aq.size() != 0)
                 dec.neighbors(aq, dec.dequeue(aq));
             aq.clear(); // reset start pos
-            while (sei[R] < gc.vs && g.epn[R][se[R][sei[R]]] <= pn)
-                sei[R]++;
-            while (sei[D] < gc.vs && g.epn[D][se[D][sei[D]]] <= pn)
-                sei[D]++;
+            sei[R] = seo[R][pn + 1];
+            sei[D] = seo[D][pn + 1];
         } else if (enqueueActivated(pn) > 0) {
             Main.print("Sorting %d vertices... ", aq.end - aq.start);
             IntArrays.parallelQuickSortIndirect(aq.a, dists.a, aq.start, aq.end);
@@ -104,17 +111,12 @@ public class PIBFS implements SPT {
     protected void processAuxQueue() {
         Main.print("processing queue...");
 
-        try {
-            task.set(aq.start); // reset the task counter
-            start.await(); // start processing the auxiliary queue
-            start.reset(); // reset the start barrier
-            done.await();  // wait until all tasks are finished
-            done.reset();  // reset the done barrier
-            assert task.get() >= aq.end;
-            aq.clear();
-        } catch (InterruptedException | BrokenBarrierException e) {
-            throw new RuntimeException(e);
-        }
+        for (int i = aq.start, k = 0; i < aq.end; i += CHUNK, k++) // deal the sorted sources in chunks
+            workers[k % workers.length].dq.push(aq.a, i, Math.min(i + CHUNK, aq.end));
+        work.set(aq.size());
+        pool.run(i -> workers[i].process()); // process the auxiliary queue and wait until all tasks are finished
+        assert work.get() == 0;
+        aq.clear();
 
         Main.clear();
     }
@@ -127,11 +129,10 @@ public class PIBFS implements SPT {
 
     private void enqueueActivated(int pn, int dir) {
         //noinspection DuplicatedCode // cba to extract to a new util class or make SPT abstract
-        int[] epn = g.epn[dir], se = this.se[dir];
-        int i;
-        for (i = sei[dir]; i < se.length && epn[se[i]] <= pn; i++)
+        int[] se = this.se[dir];
+        for (int i = sei[dir], end = seo[dir][pn + 1]; i < end; i++)
             aq.enqueue(se[i], g.next(se[i], dir));
-        sei[dir] = i;
+        sei[dir] = seo[dir][pn + 1];
     }
 
     @Override public void neighbors(Queue q, int src) {
@@ -167,42 +168,55 @@ public class PIBFS implements SPT {
     }
 
     @Override public void close() throws Exception {
-        shutdown = true;
-        start.await(); // wake up the sleeping workers
-        es.shutdown();
-        //noinspection ResultOfMethodCallIgnored
-        es.awaitTermination(1, TimeUnit.SECONDS);
+        pool.close();
     }
 
-    private class Worker implements Runnable {
+    private class Worker {
         private static int cnt = 0;
-        public final IntQueue q;
         public final int id = Worker.cnt++;
+        private final int idx; // index in workers
+        private final WorkDeque dq = new WorkDeque(); // vertices to process, stolen from the tail when idle
+        private final IntQueue in = new IntQueue(new int[CHUNK]); // chunk being processed
+        private final IntQueue out = new IntQueue(new int[4 * CHUNK]); // vertices updated by the chunk
+        private final int[] stolen = new int[1 << 12];
+
+        private Worker(int idx) {
+            this.idx = idx;
+        }
 
-        private Worker(int[] a) {
-            q = new IntQueue(a);
+        // process chunks of the own deque, or steal half of another worker's deque, until no work is left
+        private void process() {
+            while (true) {
+                in.clear();
+                in.end = dq.poll(in.a, CHUNK);
+                if (in.end == 0 && steal())
+                    continue;
+                if (in.end == 0) {
+                    if (work.get() == 0 || pool.failed()) // a failed worker never counts its chunk down
+                        return;
+                    Thread.onSpinWait(); // other workers are still processing their chunks
+                    continue;
+                }
+                while (in.size() != 0)
+                    dec.neighbors(out, dec.dequeue(in));
+                if (out.size() != 0) {
+                    work.addAndGet(out.size()); // count the new vertices before they can be stolen
+                    dq.push(out.a, out.start, out.end);
+                    out.clear();
+                }
+                work.addAndGet(-in.end);
+            }
         }
 
-        @Override public void run() {
-            try {
-                while (!Thread.currentThread().isInterrupted()) {
-                    start.await();
-                    if (shutdown) return;
-                    int t = task.getAndIncrement();
-                    while (t < aq.end) {
-                        dec.enqueue(q, aq.a[t]);
-                        while (q.size() != 0)
-                            dec.neighbors(q, dec.dequeue(q));
-                        q.clear(); // reset start pos
-                        t = task.getAndIncrement();
-                    }
-                    aq.clear(); // reset start pos
-                    done.await();
-                    if (shutdown) return;
+        private boolean steal() {
+            for (int i = 1; i < workers.length; i++) {
+                int n = workers[(idx + i) % workers.length].dq.steal(stolen);
+                if (n != 0) {
+                    dq.push(stolen, 0, n);
+                    return true;
                 }
-            } catch (InterruptedException | BrokenBarrierException e) {
-                throw new RuntimeException(e);
             }
+            return false;
         }
 
         @Override public String toString() {
@@ -0,0 +1,188 @@
+package percolation.spts;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import percolation.*;
+import percolation.util.Config;
+import percolation.util.Queue;
+
+import java.util.Arrays;
+
+import static java.lang.Integer.MAX_VALUE;
+import static percolation.Graph.*;
+
+
+// cluster tracker (Newman-Ziff): the edges are added in increasing probability numerator order (sorted as in
+// IBFS) to a union-find forest with union by size and path halving, so each update costs O(a(n)) per activated
+// edge. dist(vid) is 0 if vid is in the root cluster and MAX_VALUE otherwise, so the store counts the runs in
+// which each target is connected to the root. the root cluster size, the largest cluster size and whether the
+// root cluster reached the boundary are saved per step through clusters(), the threshold (the numerator at which
+// the root cluster first reaches the boundary) is averaged over the runs and logged
+public class UnionFind implements SPT {
+
+    private static final Logger log = LoggerFactory.getLogger(UnionFind.class);
+
+    protected SPT dec;
+    private final Config gc;
+    private final Graph g;
+    private final int[] parent; // parent vertex, or -size for a cluster root
+    private final boolean[] boundary; // the cluster reaches the boundary (valid for cluster roots)
+    private final int[][] se = new int[2][]; // sorted edges
+    private final int[][] seo = new int[2][]; // sorted edges offsets per probability numerator
+    private int np; // smallest numerator whose edges were not added yet
+    private int largest, threshold; // largest cluster size and threshold of the current run
+    private final int[] clusters = new int[CLUSTERS]; // cluster metrics of the last update
+    private long thresholdSum;
+    private int runs, spanning; // runs and runs whose root cluster reached the boundary
+
+    // static factory
+    public static SPT create(Config gc, Graph g) {
+        return new UnionFind(gc, g, new int[gc.vs]);
+    }
+
+    protected UnionFind(Config gc, Graph g, int[] parent) {
+        this.gc = gc;
+        this.g = g;
+        this.parent = parent;
+        dec = this;
+        boundary = new boolean[gc.vs];
+        se[R] = new int[gc.vs];
+        se[D] = new int[gc.vs];
+        seo[R] = new int[gc.div + 2];
+        seo[D] = new int[gc.div + 2];
+    }
+
+    @Override
+    public SPT set(SPT dec) {
+        return this.dec = dec;
+    }
+
+    @Override public void init(long seed) {
+        g.init(seed);
+        dec.reset(); // reset the clusters
+        runs++;
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(parent, -1);
+        for (int vid = 0; vid < gc.vs; vid++) {
+            boolean inner = true;
+            for (int dir = 0; dir < 4; dir++)
+                inner &= g.next(vid, dir) >= 0;
+            boundary[vid] = !inner;
+        }
+        largest = 1;
+        threshold = MAX_VALUE;
+        Main.print("Sorting %d vertices...", se[R].length + se[D].length);
+        g.sort(se[R], seo[R], R);
+        g.sort(se[D], seo[D], D);
+        np = 0;
+        Main.clear();
+    }
+
+    @Override public void preUpdate(int pn) {
+        g.update(pn); // add new edges
+    }
+
+    @Override
+    public void update(int pn) {
+        for (; np <= pn; np++) { // add the activated edges in increasing numerator order
+            union(np, R);
+            union(np, D);
+        }
+        clusters[0] = rootSize();
+        clusters[1] = largest;
+        clusters[2] = threshold != MAX_VALUE ? 1 : 0;
+    }
+
+    // add the edges in dir with the numerator p
+    private void union(int p, int dir) {
+        int[] se = this.se[dir];
+        for (int i = seo[dir][p], end = seo[dir][p + 1]; i < end; i++)
+            join(se[i], g.next(se[i], dir), p);
+    }
+
+    // merge the clusters of u and v, joined by an edge with the numerator p. returns false if they were one
+    private boolean join(int u, int v, int p) {
+        int a = find(u), b = find(v);
+        if (a == b)
+            return false;
+        if (parent[a] > parent[b]) { // attach the smaller cluster (a) to the larger one (b)
+            int t = a;
+            a = b;
+            b = t;
+        }
+        parent[b] += parent[a];
+        parent[a] = b;
+        boundary[b] |= boundary[a];
+        largest = Math.max(largest, -parent[b]);
+        if (threshold == MAX_VALUE && boundary[b] && find(g.root) == b) {
+            threshold = p;
+            thresholdSum += p;
+            spanning++;
+        }
+        return true;
+    }
+
+    private int find(int vid) {
+        while (parent[vid] >= 0) {
+            if (parent[parent[vid]] >= 0)
+                parent[vid] = parent[parent[vid]]; // path halving
+            vid = parent[vid];
+        }
+        return vid;
+    }
+
+    public int rootSize() {
+        return -parent[find(g.root)];
+    }
+
+    public int largest() {
+        return largest;
+    }
+
+    // numerator at which the root cluster reached the boundary in the current run (MAX_VALUE if not yet)
+    public int threshold() {
+        return threshold;
+    }
+
+    // join src with its neighbours over the enabled edges (q is not used, the clusters have no queue)
+    @Override public void neighbors(Queue q, int src) {
+        for (int dir = 0; dir < 4; dir++)
+            if (g.isEdgeEnabled(src, dir))
+                dec.neighbor(q, src, g.next(src, dir), 0);
+    }
+
+    // join the clusters of src and dst (dist is not used, cluster members have distance 0)
+    @Override public boolean neighbor(Queue q, int src, int dst, int dist) {
+        return join(src, dst, g.pn());
+    }
+
+    @Override public void enqueue(Queue q, int vid) {
+        q.enqueue(vid);
+    }
+
+    @Override public int dequeue(Queue q) {
+        return q.dequeue();
+    }
+
+    @Override public int dist(int vid) {
+        return find(vid) == find(g.root) ? 0 : MAX_VALUE;
+    }
+
+    @Override public int qsize() {
+        return 0;
+    }
+
+    @Override public int[] clusters() {
+        return clusters;
+    }
+
+    @Override public void close() {
+        if (runs == 0)
+            return;
+        log.info("Root cluster reached the boundary in {} of {} runs, mean threshold {}/{}", spanning, runs,
+                spanning == 0 ? "-" : String.format("%.2f", (double) thresholdSum / spanning), gc.div);
+    }
+}
@@ -23,9 +23,7 @@ public class FullSptStatsDec extends MinSptStatsDec {
     }
 
     @Override public int dequeue(Queue q) {
-        int size = qsize();
-        stats.queue(size);
-        stats.elapsed(size == 0);
+        stats.queue(qsize());
         return super.dequeue(q);
     }
 }
@@ -32,7 +32,7 @@ public class SimStatsDec extends SimDec {
         stats.starting();
         super.run(seed);
         stats.finished();
-        stats.elapsed(true);
+        stats.elapsed();
     }
 
     @Override public void trans(boolean done) throws SQLException {
@@ -48,7 +48,6 @@ public class SimStatsDec extends SimDec {
         stats.running();
         super.run(seed, run);
         stats.exp().end();
-        stats.queue(0);
     }
 
     @Override
@@ -59,7 +58,7 @@ public class SimStatsDec extends SimDec {
     @Override
     public void run(int pi, int pn) throws SQLException {
         if (full) stats.queue();
-        stats.elapsed(true);
+        stats.elapsed();
         stats.cycle().start();
         super.run(pi, pn);
         stats.mem();
@@ -75,7 +74,6 @@ public class SimStatsDec extends SimDec {
             log.debug("Averages for vertex {} in actual dist {} ({},{}): dist:{} stretch:{}", vid, ad, x, y, d, s);
         }
         stats.result(from + pi * step, x, y, dsum, dcnt);
-        stats.elapsed();
         super.save(pi, vid, x, y, dsum, dcnt);
     }
 
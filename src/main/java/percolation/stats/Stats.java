@@ -16,9 +16,18 @@ import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryUsage;
 import java.net.SocketException;
 import java.text.DecimalFormat;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 import static org.fusesource.jansi.Ansi.ansi;
 
+// the simulation threads only update the counters and gauges (dequeues, queue size, distance), which are
+// thread-safe and cheap to update; the reporter thread samples and renders them (and the elapsed time) every
+// refresh ms. every console write holds the lock of out (see Main.print), and the cells restore the cursor, so the
+// progress text below the cells continues where it was
 public class Stats implements AutoCloseable {
 
     private static final Logger log = LoggerFactory.getLogger(Stats.class);
@@ -27,12 +36,14 @@ public class Stats implements AutoCloseable {
     public final boolean isRedirected;
     private int bottom = 1; // last row of the output
     private final Output expCounter, resultSample, runState;
-    private final VoidValOutput memoryStats, elapsedTimeFast, elapsedTimeSlow;
-    private final IncValOutput dequeueCounter;
-    private final LongValOutput probVal, maxDist, queueSize;
+    private final VoidValOutput memoryStats, elapsedTime;
+    private final CounterOutput dequeueCounter;
+    private final GaugeOutput maxDist, queueSize;
+    private final LongValOutput probVal;
     private final TimeOutput expTime, cycleTime, sptTime, dumpTime;
     private final long refresh; // refresh rate in ms
     private final DecimalFormat df = new DecimalFormat("0.00");
+    private final Thread reporter;
 
     public Stats(Config gc) {
         this(gc, gc.remote || System.console() == null ? newRemoteStream() : System.out, gc.refresh);
@@ -59,53 +70,64 @@ public class Stats implements AutoCloseable {
         out("SPT class: @|yellow,bold %s|@", spt);
         out("Start time: @|cyan,bold %s|@", new java.util.Date());
         out("Runs: @|bold %d|@ | R: @|bold %s|@ Vs: @|bold %s|@ Ts: @|bold %s|@ Skip: @|bold %s|@",
-                gc.runs, gc.r, numFmt(gc.vs), numFmt(gc.ts), gc.skip);
+                gc.runs, gc.r, numFmt(gc.vertices), numFmt(gc.ts), gc.skip);
         out("Stats: @|bold %s|@ | From: @|bold %d|@ To: @|bold %d|@ Step: @|bold %d|@ Div: @|bold %d|@",
                 gc.stats, gc.from, gc.to, gc.step, gc.div);
         memoryStats = getMemOutput("Mem:");
         out("-"); // line separator
         expCounter = new TimeOutput("Experiment:");
         probVal = getProbOutput(gc, "Probability:");
-        elapsedTimeFast = getElapsedOutput("Elapsed time:");
+        elapsedTime = getElapsedOutput("Elapsed time:");
         expTime = new TimeOutput("Exp time:");
         sptTime = new TimeOutput("SPT time:");
         cycleTime = new TimeOutput("Cycle time:");
-        dumpTime = gc.dbUrl != null && gc.save != 0 ? new TimeOutput("Dump time:") : null;
+        dumpTime = gc.persist && gc.save != 0 ? new TimeOutput("Dump time:") : null;
 
         if (gc.stats.equals("full")) { // full stats only
             out("-"); // line separator
-            dequeueCounter = new IncValOutput("Dequeues");
-            maxDist = getMaxOutput("Distance", false);
-            queueSize = getMaxOutput("Queue size", true);
+            dequeueCounter = new CounterOutput("Dequeues");
+            maxDist = new GaugeOutput("Distance", false);
+            queueSize = new GaugeOutput("Queue size", true);
             out("-"); // line separator
             resultSample = new BaseOutput(bottom++, refresh, "Result:");
-            try {
-                elapsedTimeSlow = (VoidValOutput) elapsedTimeFast.clone();
-            } catch (CloneNotSupportedException e) {
-                throw new RuntimeException(e);
-            }
         } else {
             dequeueCounter = null;
             maxDist = null;
             queueSize = null;
             resultSample = null;
-            elapsedTimeSlow = null;
         }
+        out.print(ansi().cursor(bottom + 1, 1)); // the progress text goes below the cells
+        reporter = new Thread(this::report, "stats-reporter");
+        reporter.setDaemon(true);
+        reporter.start();
     }
 
-    public void prob(int pn) {
-        probVal.out(pn);
+    // samples the counters every refresh ms until closed
+    private void report() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Thread.sleep(Math.max(refresh, 1));
+                sample();
+            }
+        } catch (InterruptedException ignored) {
+        }
     }
 
-    public void elapsed(boolean force) {
-        if (force)
-            elapsedTimeFast.out();
-        else
-            elapsedTimeFast.val();
+    private void sample() {
+        elapsedTime.out();
+        if (dequeueCounter != null) {
+            dequeueCounter.out();
+            maxDist.out();
+            queueSize.out();
+        }
+    }
+
+    public void prob(int pn) {
+        probVal.out(pn);
     }
 
     public void elapsed() {
-        elapsedTimeSlow.val();
+        elapsedTime.out();
     }
 
     public void mem() {
@@ -124,12 +146,16 @@ public class Stats implements AutoCloseable {
         maxDist.val(d);
     }
 
-    public void dist() {
-        maxDist.out(maxDist.row, maxDist.col, "(max: @|bold %s|@): @|bold %s|@     ", maxDist.v2, maxDist.v1);
+    public long dequeues() {
+        return dequeueCounter.total.sum();
+    }
+
+    public long maxDist() {
+        return maxDist.max.get();
     }
 
-    public void qsize() {
-        queueSize.out(queueSize.row, queueSize.col, "(max: @|bold %s|@): @|bold %s|@     ", numFmt(queueSize.v2), numFmt(queueSize.v1));
+    public long maxQueue() {
+        return queueSize.max.get();
     }
 
     public TimeOutput exp() {
@@ -187,7 +213,7 @@ public class Stats implements AutoCloseable {
         abstract void out();
     }
 
-    private abstract class LongValOutput extends ValOutput {
+    private abstract class LongValOutput extends BaseOutput {
         public LongValOutput(String prefix) {
             super(prefix);
         }
@@ -200,35 +226,70 @@ public class Stats implements AutoCloseable {
         abstract void out(long val);
     }
 
-    private abstract class ValOutput extends BaseOutput {
-        protected long v1, v2;
+    // counter updated by any number of threads, with the count since the last reset
+    private class CounterOutput extends BaseOutput {
+        private final LongAdder total = new LongAdder();
+        private volatile long base; // total at the last reset
 
-        public ValOutput(String prefix) {
+        public CounterOutput(String prefix) {
             super(prefix);
         }
-    }
 
-    private class IncValOutput extends ValOutput {
-        public IncValOutput(String prefix) {
-            super(prefix);
+        void inc() {
+            total.increment();
         }
 
-        public void inc() {
-            v1++;
-            v2++;
-            val();
+        void reset() {
+            base = total.sum();
         }
 
-        public void reset() {
-            v1 = 0;
-            val();
+        void out() {
+            long t = total.sum();
+            out(row, col, "(total: @|bold %s|@): @|bold %s|@     ", numFmt(t), numFmt(t - base));
         }
+    }
 
-        public void val() {
-            if (time())
-                super.out(row, col, "(total: @|bold %s|@): @|bold %s|@     ", numFmt(v2), numFmt(v1));
+    // current value and maximum, updated by any number of threads. each thread writes its current value to a slot
+    // of its own and the reporter shows the largest one among the threads that updated theirs since the last output.
+    // the maximum is written only when it grows
+    private class GaugeOutput extends BaseOutput {
+        private static final int VAL = 0, UPDATES = 1, SEEN = 15; // slot indices, SEEN on another cache line
+        private final List<AtomicLongArray> slots = new CopyOnWriteArrayList<>();
+        private final ThreadLocal<AtomicLongArray> slot = ThreadLocal.withInitial(() -> {
+            AtomicLongArray s = new AtomicLongArray(SEEN + 1);
+            slots.add(s);
+            return s;
+        });
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        private final boolean fmt;
+        private long cur; // the value of the last output (reporter thread)
+
+        public GaugeOutput(String prefix, boolean fmt) {
+            super(prefix);
+            this.fmt = fmt;
+        }
+
+        void val(long val) {
+            AtomicLongArray s = slot.get();
+            s.lazySet(VAL, val);
+            s.lazySet(UPDATES, s.get(UPDATES) + 1); // single writer
+            max.accumulate(val);
         }
 
+        void out() {
+            long c = Long.MIN_VALUE;
+            for (AtomicLongArray s : slots) {
+                long u = s.get(UPDATES);
+                if (u != s.get(SEEN)) {
+                    s.lazySet(SEEN, u);
+                    c = Math.max(c, s.get(VAL));
+                }
+            }
+            if (c != Long.MIN_VALUE)
+                cur = c;
+            long m = max.get();
+            out(row, col, "(max: @|bold %s|@): @|bold %s|@     ", fmt ? numFmt(m) : m, fmt ? numFmt(cur) : cur);
+        }
     }
 
     private interface Output extends Cloneable {
@@ -273,7 +334,9 @@ public class Stats implements AutoCloseable {
 
         @Override
         public void out(int row, int col, String fmt, Object... args) {
-            out.print(ansi().cursor(row, col).render(fmt, args).cursor(bottom + 1, 1));
+            synchronized (out) {
+                out.print(ansi().saveCursorPosition().cursor(row, col).render(fmt, args).restoreCursorPosition());
+            }
         }
 
         @Override
@@ -316,22 +379,6 @@ public class Stats implements AutoCloseable {
         }
     }
 
-    private LongValOutput getMaxOutput(String prefix, boolean fmt) {
-        return new LongValOutput(prefix) {
-            @Override
-            public void val(long val) {
-                if (val > v2)
-                    v2 = val;
-                if (time())
-                    out(val);
-            }
-
-            @Override void out(long val) {
-                super.out(row, col, "(max: @|bold %s|@): @|bold %s|@     ", fmt ? numFmt(v2) : v2, fmt ? numFmt(val) : val);
-            }
-        };
-    }
-
     private VoidValOutput getElapsedOutput(String prefix) {
         StopWatch sw = new StopWatch();
         sw.start();
@@ -385,18 +432,24 @@ public class Stats implements AutoCloseable {
     }
 
     public void out(String fmt, Object... args) {
-        out.print(ansi().cursor(bottom++, 1).render(fmt, args).cursor(bottom + 1, 1));
+        synchronized (out) {
+            out.print(ansi().cursor(bottom++, 1).render(fmt, args).cursor(bottom + 1, 1));
+        }
     }
 
     public void print(String s) {
-        out.print(s);
+        synchronized (out) {
+            out.print(s);
+        }
     }
 
+    // a dequeue from a queue of the given size
     public void queue(int size) {
         dequeueCounter.inc();
         queueSize.val(size);
     }
 
+    // start counting the dequeues of a new cycle
     public void queue() {
         dequeueCounter.reset();
     }
@@ -439,6 +492,13 @@ public class Stats implements AutoCloseable {
 
         log.info("Closing stats object");
 
+        reporter.interrupt();
+        try {
+            reporter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sample(); // the final values
         AnsiConsole.systemUninstall();
     }
 }
@@ -0,0 +1,140 @@
+package percolation.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.*;
+
+// memory-mapped checkpoint of a multi-run simulation: the seed, the completed runs and the aggregates that are not
+// in the db yet. the file has two slots written alternately, each with a sequence number and a checksum, so a
+// crash while writing one slot leaves the other one intact. a dump saves the checkpoint before its transaction,
+// with the commit number that the transaction records in the db (Sim.commit): if the db has that commit on resume,
+// the aggregates of the slot are in the db already
+public class Checkpoint implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(Checkpoint.class);
+
+    private static final int MAGIC = 0x50434b32; // "PCK2"
+    private static final int HEADER = 8 + 8 + 4 + 4 + 4 + 8; // seq, seed, runs, ps, ts, commit (then the data, the crc)
+
+    private final Path file;
+    private final FileChannel ch;
+    private final MappedByteBuffer map;
+    private final long seed;
+    private final int runs, ps, ts, slot; // slot size in bytes
+    private long seq; // sequence number of the last written slot
+    private long commit; // commit number of the loaded slot
+
+    public Checkpoint(Path file, long seed, int runs, int ps, int ts) throws IOException {
+        this.file = file;
+        this.seed = seed;
+        this.runs = runs;
+        this.ps = ps;
+        this.ts = ts;
+        long size = HEADER + 8L * ((runs + 63) / 64) + 12L * ps * ts + 8;
+        if (4 + 2 * size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Checkpoint too large: " + (4 + 2 * size) + " bytes");
+        slot = (int) size;
+        if (file.getParent() != null)
+            Files.createDirectories(file.getParent());
+        boolean exists = Files.exists(file);
+        ch = FileChannel.open(file, CREATE, READ, WRITE);
+        if (exists && ch.size() != 4 + 2L * slot) {
+            ch.close();
+            throw new IOException("Checkpoint " + file + " does not match the config (size " + Files.size(file) + ")");
+        }
+        map = ch.map(FileChannel.MapMode.READ_WRITE, 0, 4 + 2L * slot);
+        if (!exists)
+            map.putInt(0, MAGIC);
+        else if (map.getInt(0) != MAGIC)
+            throw new IOException("Not a checkpoint file: " + file);
+    }
+
+    // restore the last valid slot into done, tds and tdc. returns false if there is none
+    public boolean load(BitSet done, long[][] tds, int[][] tdc) throws IOException {
+        int last = -1;
+        for (int i = 0; i < 2; i++)
+            if (valid(i) && (last < 0 || map.getLong(offset(i)) > map.getLong(offset(last))))
+                last = i;
+        if (last < 0)
+            return false;
+        int off = offset(last);
+        if (map.getLong(off + 8) != seed || map.getInt(off + 16) != runs
+            || map.getInt(off + 20) != ps || map.getInt(off + 24) != ts)
+            throw new IOException("Checkpoint " + file + " does not match the config (seed, runs or targets)");
+        seq = map.getLong(off);
+        commit = map.getLong(off + 28);
+        ByteBuffer b = map.slice(off + HEADER, slot - HEADER - 8);
+        long[] words = new long[(runs + 63) / 64];
+        b.asLongBuffer().get(words);
+        b.position(8 * words.length);
+        done.clear();
+        done.or(BitSet.valueOf(words));
+        for (long[] row : tds) {
+            b.asLongBuffer().get(row);
+            b.position(b.position() + 8 * ts);
+        }
+        for (int[] row : tdc) {
+            b.asIntBuffer().get(row);
+            b.position(b.position() + 4 * ts);
+        }
+
+        log.info("Checkpoint {} loaded: {} of {} runs completed", file, done.cardinality(), runs);
+
+        return true;
+    }
+
+    // the db commit that holds the aggregates of the loaded slot
+    public long commit() {
+        return commit;
+    }
+
+    // write done, tds and tdc over the older slot and flush it to the disk. tds and tdc are in the db once it has
+    // the given commit
+    public void save(BitSet done, long[][] tds, int[][] tdc, long commit) {
+        int off = offset((int) (++seq & 1));
+        ByteBuffer b = map.slice(off, slot - 8);
+        b.putLong(seq).putLong(seed).putInt(runs).putInt(ps).putInt(ts).putLong(commit);
+        long[] words = done.toLongArray();
+        for (int i = 0; i < (runs + 63) / 64; i++)
+            b.putLong(i < words.length ? words[i] : 0L);
+        for (long[] row : tds) {
+            b.asLongBuffer().put(row);
+            b.position(b.position() + 8 * ts);
+        }
+        for (int[] row : tdc) {
+            b.asIntBuffer().put(row);
+            b.position(b.position() + 4 * ts);
+        }
+        map.putLong(off + slot - 8, crc(off));
+        map.force(off, slot);
+    }
+
+    private boolean valid(int i) {
+        int off = offset(i);
+        return map.getLong(off + slot - 8) == crc(off) && map.getLong(off) > 0;
+    }
+
+    private long crc(int off) {
+        CRC32 crc = new CRC32();
+        crc.update(map.slice(off, slot - 8));
+        return crc.getValue();
+    }
+
+    private int offset(int i) {
+        return 4 + i * slot;
+    }
+
+    @Override public void close() throws IOException {
+        ch.close();
+    }
+}
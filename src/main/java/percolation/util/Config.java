@@ -17,12 +17,19 @@ public class Config {
 
     private static final org.slf4j.Logger log = LoggerFactory.getLogger(Config.class);
 
-    public final String visProps, stats, dbUrl, stderr, spt, targets;
+    public static final int MAX_DIV = Character.MAX_VALUE - 2; // largest numerator Graph's compact edge store holds
+
+    public final String visProps, stats, dbUrl, stderr, spt, graph, layout, rng, targets, checkpoint, storeFile;
     public final long seed, refresh, save;
-    public final int r, dist, vs, runs, skip, from, to, step, div;
+    public final int r, dist, vs, runs, roots, threads, pibfsThreads, pibfsSpin, skip, from, to, step, div;
     public final int[] targetList;
-    public final int ps, log2r, ts, inner, outer; // inner/outer vertices
-    public final boolean remote, vis;
+    public final int ps, log2r, ts, inner, outer; // inner/outer vertices (-1 with vs if vertices exceeds int range)
+    public final long vertices; // total vertices (vs if it fits in an int array)
+    public final boolean pibfsShared, early, remote, vis, resume, fold;
+    public final boolean persist; // the results are saved to a db or a result file
+    public final double precision; // target half-width of the stretch confidence intervals (0 = run all runs)
+    public final int minRuns; // runs before the confidence intervals are checked
+    public final boolean drop; // skip the converged probabilities in the following runs
 
     public Config(String configFile) {
         this(load(configFile));
@@ -33,25 +40,40 @@ public class Config {
     }
 
     Config(Properties p, @SuppressWarnings("unused") int dummy) {
-        this(get(p, "db.url"), get(p, "stderr"), getClass(p, "spt"), get(p, "runs", "1"),
-                get(p, "save.every", "600"), get(p, "radius"), get(p, "distance", "0"),
-                get(p, "skip", "0"), get(p, "seed"), get(p, "from", "48"),
+        this(get(p, "db.url"), get(p, "stderr"), getClass(p, "spt"), getClass(p, "graph"),
+                get(p, "graph.layout", "rows"), get(p, "rng", "legacy"),
+                get(p, "runs", "1"), get(p, "run.threads", "1"),
+                get(p, "pibfs.threads", "0"), get(p, "pibfs.spin", "1000"), get(p, "pibfs.shared", "false"),
+                get(p, "store.file"), get(p, "save.every", "600"),
+                get(p, "checkpoint.file"), get(p, "checkpoint.resume", "false"),
+                get(p, "runs.precision", "0"), get(p, "runs.min", "10"), get(p, "runs.drop", "false"),
+                get(p, "radius"), get(p, "distance", "0"), get(p, "skip", "0"), get(p, "seed"), get(p, "from", "48"),
                 get(p, "to", "100"), get(p, "step", "1"), get(p, "div", "100"),
-                get(p, "targets", "all"), get(p, "stats", "full"),
+                get(p, "targets", "all"), get(p, "targets.fold", "false"), get(p, "roots", "1"),
+                get(p, "early.stop", "false"), get(p, "stats", "full"),
                 get(p, "stats.remote", "false"), get(p, "stats.refresh", "100"),
                 get(p, "vis.props"));
     }
 
-    Config(String dbUrl, String stderr, String spt, String runs,
-           String save, String r, String dist, String skip, String seed,
-           String from, String to, String step, String div, String targets,
+    Config(String dbUrl, String stderr, String spt, String graph, String layout, String rng, String runs,
+           String threads, String pibfsThreads, String pibfsSpin, String pibfsShared, String storeFile,
+           String save, String checkpoint, String resume, String precision, String minRuns, String drop,
+           String r, String dist, String skip, String seed,
+           String from, String to, String step, String div, String targets, String fold, String roots, String early,
            String stats, String remote, String refresh, String visProps) {
-        this(dbUrl, stderr, spt,
-                parseInt("runs", runs), parseLong("save.every", save),
+        this(dbUrl, stderr, spt, graph, parseChoice("graph.layout", layout, "rows", "morton", "hilbert"),
+                parseChoice("rng", rng, "legacy", "split"),
+                parseInt("runs", runs), parseInt("run.threads", threads), parseInt("pibfs.threads", pibfsThreads),
+                parseInt("pibfs.spin", pibfsSpin), parseBoolean("pibfs.shared", pibfsShared), storeFile,
+                parseLong("save.every", save), checkpoint, parseBoolean("checkpoint.resume", resume),
+                parseDouble("runs.precision", precision), parseInt("runs.min", minRuns),
+                parseBoolean("runs.drop", drop),
                 parseInt("radius", r), parseInt("distance", dist), parseInt("skip", skip),
                 seed == null ? System.currentTimeMillis() : parseLong("seed", seed),
                 parseInt("from", from), parseInt("to", to), parseInt("step", step),
-                parseInt("div", div), targets, parseList(targets),
+                parseInt("div", div), targets, parseList(targets), parseBoolean("targets.fold", fold),
+                parseInt("roots", roots),
+                parseBoolean("early.stop", early),
                 parseChoice("stats", stats, "none", "min", "full"),
                 parseBoolean("remote", remote), parseLong("stats.refresh", refresh), visProps);
     }
@@ -83,19 +105,36 @@ public class Config {
         return prop;
     }
 
-    Config(String dbUrl, String stderr, String spt, int runs, long save,
+    Config(String dbUrl, String stderr, String spt, String graph, String layout, String rng, int runs, int threads,
+           int pibfsThreads, int pibfsSpin, boolean pibfsShared, String storeFile,
+           long save, String checkpoint, boolean resume, double precision, int minRuns, boolean drop,
            int r, int dist, int skip, long seed, int from, int to, int step, int div,
-           String targets, int[] targetList, String stats, boolean remote, long refresh, String visProps) {
+           String targets, int[] targetList, boolean fold, int roots, boolean early,
+           String stats, boolean remote, long refresh, String visProps) {
 
-        this.dbUrl = dbUrl; this.stderr = stderr; this.spt = spt; this.runs = runs; this.r = r; this.dist = dist;
-        this.skip = skip; this.seed = seed; this.from = from; this.to = to; this.step = step; this.div = div;
-        this.targets = targets; this.targetList = targetList; this.stats = stats; this.remote = remote;
+        this.dbUrl = dbUrl; this.stderr = stderr; this.spt = spt; this.graph = graph; this.layout = layout;
+        this.rng = rng; this.runs = runs; this.threads = threads;
+        this.pibfsSpin = pibfsSpin; this.pibfsShared = pibfsShared;
+        this.pibfsThreads = pibfsThreads > 0 ? pibfsThreads // default: half of the cores, at least one
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.r = r; this.dist = dist; this.skip = skip; this.seed = seed;
+        this.from = from; this.to = to; this.step = step; this.div = div;
+        this.targets = targets; this.targetList = targetList; this.fold = fold; this.roots = roots;
+        this.early = early; this.stats = stats; this.remote = remote;
         this.refresh = refresh; this.save = save > 0 ? 1000L * save : save; this.visProps = visProps;
-        verify(runs, r, skip, from, to, step, div, save);
+        this.checkpoint = checkpoint; this.resume = resume; this.storeFile = storeFile;
+        this.precision = precision; this.minRuns = minRuns; this.drop = drop;
+        persist = dbUrl != null || storeFile != null;
         vis = visProps != null && !visProps.isEmpty();
-        inner = this.r * this.r; // inner vertices
-        outer = (this.r + 1) * (this.r + 1); // outer vertices
-        vs = outer + inner; // total vertices
+        verify(runs, threads, pibfsThreads, pibfsSpin, r, skip, from, to, step, div, save, checkpoint, resume,
+                precision, minRuns, drop, roots, early, stats, vis, spt, graph);
+        if (!layout.equals("rows") && 2 * r + 1 > 1 << 16)
+            throw new RuntimeException("Invalid config (radius must be < 32768 for graph.layout=" + layout + ")");
+        vertices = (long) this.r * this.r + (this.r + 1L) * (this.r + 1L);
+        boolean fits = vertices <= Integer.MAX_VALUE - 8; // the largest int array
+        inner = fits ? this.r * this.r : -1; // inner vertices
+        outer = fits ? (this.r + 1) * (this.r + 1) : -1; // outer vertices
+        vs = fits ? outer + inner : -1; // total vertices
         ps = (this.to - this.from) / this.step + 1; // number of probabilities
         log2r = (int) (Math.log(this.r) / Math.log(2));
         ts = (1 << (log2r + 3)) - 4;
@@ -124,13 +163,22 @@ public class Config {
         }
     }
 
-    private static void verify(int runs, int r, int skip, int from, int to, int step, int div, long save) {
+    private static void verify(int runs, int threads, int pibfsThreads, int pibfsSpin,
+                               int r, int skip, int from, int to, int step, int div, long save,
+                               String checkpoint, boolean resume, double precision, int minRuns, boolean drop,
+                               int roots, boolean early, String stats, boolean vis, String spt, String graph) {
         if (r < 1)
             throw new RuntimeException("Invalid config (radius must be >= 1)");
         if (skip < 0)
             throw new RuntimeException("Invalid config (skip must be >= 0)");
         if (runs < 0)
             throw new RuntimeException("Invalid config (runs must be >= 0)");
+        if (threads < 1)
+            throw new RuntimeException("Invalid config (run.threads must be >= 1)");
+        if (pibfsThreads < 0)
+            throw new RuntimeException("Invalid config (pibfs.threads must be >= 0)");
+        if (pibfsSpin < 0)
+            throw new RuntimeException("Invalid config (pibfs.spin must be >= 0)");
         if (from > to)
             throw new RuntimeException("Invalid config (from must be <= to)");
         if ((double) from / div < 0 || (double) from / div > 1)
@@ -141,8 +189,43 @@ public class Config {
             throw new RuntimeException("Invalid config (step must be >= 1)");
         if (div < 1)
             throw new RuntimeException("Invalid config (div must be >= 1)");
+        if (div > MAX_DIV)
+            throw new RuntimeException("Invalid config (div must be <= " + MAX_DIV + ")");
         if (save < -2L)
             throw new RuntimeException("Invalid config (save.every must be >= -2)");
+        if (checkpoint != null && save == 0)
+            throw new RuntimeException("Invalid config (checkpoint.file requires save.every != 0)");
+        if (resume && checkpoint == null)
+            throw new RuntimeException("Invalid config (checkpoint.resume requires checkpoint.file)");
+        if (!(precision >= 0))
+            throw new RuntimeException("Invalid config (runs.precision must be >= 0)");
+        if (minRuns < 2)
+            throw new RuntimeException("Invalid config (runs.min must be >= 2)");
+        if (drop && precision == 0)
+            throw new RuntimeException("Invalid config (runs.drop requires runs.precision)");
+        if (resume && precision > 0) // the moments and the dropped steps are not checkpointed
+            throw new RuntimeException("Invalid config (checkpoint.resume requires runs.precision=0)");
+        if (roots < 1)
+            throw new RuntimeException("Invalid config (roots must be >= 1)");
+        if (roots > 1 && early)
+            throw new RuntimeException("Invalid config (early.stop requires roots=1)");
+        if (early && !is(spt, "BFS") && !is(spt, "IBFS")) // the other engines ignore it, or cannot stop early (FPP)
+            throw new RuntimeException("Invalid config (early.stop requires spt.class=BFS or IBFS)");
+        if (roots > 1 && precision > 0) // the roots of a run share the realization, not independent samples
+            throw new RuntimeException("Invalid config (runs.precision requires roots=1)");
+        if (roots > 1 && (is(spt, "BitBFS") || is(spt, "UnionFind"))) // the origin targets / cluster only
+            throw new RuntimeException("Invalid config (" + spt + " requires roots=1)");
+        if (is(graph, "BigGraph") && !is(spt, "BigBFS") && !is(spt, "BigIBFS")) // the others use int vertex ids
+            throw new RuntimeException("Invalid config (graph.class=BigGraph requires spt.class=BigBFS or BigIBFS)");
+        if (is(graph, "BigGraph") && (stats.equals("full") || vis)) // no per-vertex decorator hooks
+            throw new RuntimeException("Invalid config (graph.class=BigGraph requires stats=min or none and no vis)");
+        if (threads > 1 && runs > 1 && (!stats.equals("none") || vis)) // only the first worker could be decorated
+            throw new RuntimeException("Invalid config (run.threads > 1 requires stats=none and no vis)");
+    }
+
+    // true if the class name (simple, or in the default package of its kind) is the given class
+    private static boolean is(String cls, String name) {
+        return cls != null && cls.substring(cls.lastIndexOf('.') + 1).equals(name);
     }
 
     public static Level parseLevel(String level) {
@@ -197,6 +280,14 @@ public class Config {
         }
     }
 
+    public static double parseDouble(String key, String val) {
+        try {
+            return Double.parseDouble(val);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException(String.format("Invalid config (number format): %s=%s", key, val), e);
+        }
+    }
+
     private static Properties load(String file) {
         try (FileInputStream in = new FileInputStream(file)) {
             Properties props = new Properties();
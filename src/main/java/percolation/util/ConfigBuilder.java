@@ -4,16 +4,23 @@ import static percolation.util.Config.*;
 
 @SuppressWarnings("unused")
 public class ConfigBuilder {
-    private String dbUrl, stderr, spt, vis, stats = "full", targets;
-    private int r, dist = 0, runs = 1, skip = 0, from, to = 100, step = 1, div = 100;
+    private String dbUrl, stderr, spt, graph, layout = "rows", rng = "legacy", vis, stats = "full", targets, checkpoint, storeFile;
+    private int r, dist = 0, runs = 1, threads = 1, pibfsThreads = 0, pibfsSpin = 1000, skip = 0, from, to = 100, step = 1, div = 100;
+    private int minRuns = 10, roots = 1;
     private long save, seed, refresh;
-    private boolean remote;
+    private double precision;
+    private boolean pibfsShared, early, remote, resume, drop, fold;
 
     public ConfigBuilder dbUrl(String dbUrl) {
         this.dbUrl = dbUrl;
         return this;
     }
 
+    public ConfigBuilder storeFile(String storeFile) {
+        this.storeFile = storeFile;
+        return this;
+    }
+
     public ConfigBuilder stderr(String stderr) {
         this.stderr = stderr;
         return this;
@@ -24,6 +31,21 @@ public class ConfigBuilder {
         return this;
     }
 
+    public ConfigBuilder graph(String graph) {
+        this.graph = graph;
+        return this;
+    }
+
+    public ConfigBuilder layout(String layout) {
+        this.layout = layout;
+        return this;
+    }
+
+    public ConfigBuilder rng(String rng) {
+        this.rng = rng;
+        return this;
+    }
+
     public ConfigBuilder radius(int r) {
         this.r = r;
         return this;
@@ -38,6 +60,26 @@ public class ConfigBuilder {
         return this;
     }
 
+    public ConfigBuilder threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public ConfigBuilder pibfsThreads(int pibfsThreads) {
+        this.pibfsThreads = pibfsThreads;
+        return this;
+    }
+
+    public ConfigBuilder pibfsSpin(int pibfsSpin) {
+        this.pibfsSpin = pibfsSpin;
+        return this;
+    }
+
+    public ConfigBuilder pibfsShared(boolean pibfsShared) {
+        this.pibfsShared = pibfsShared;
+        return this;
+    }
+
     public ConfigBuilder skip(int skip) {
         this.skip = skip;
         return this;
@@ -68,6 +110,21 @@ public class ConfigBuilder {
         return this;
     }
 
+    public ConfigBuilder fold(boolean fold) {
+        this.fold = fold;
+        return this;
+    }
+
+    public ConfigBuilder roots(int roots) {
+        this.roots = roots;
+        return this;
+    }
+
+    public ConfigBuilder early(boolean early) {
+        this.early = early;
+        return this;
+    }
+
     public ConfigBuilder stats(String stats) {
         this.stats = stats;
         return this;
@@ -88,6 +145,31 @@ public class ConfigBuilder {
         return this;
     }
 
+    public ConfigBuilder checkpoint(String checkpoint) {
+        this.checkpoint = checkpoint;
+        return this;
+    }
+
+    public ConfigBuilder resume(boolean resume) {
+        this.resume = resume;
+        return this;
+    }
+
+    public ConfigBuilder precision(double precision) {
+        this.precision = precision;
+        return this;
+    }
+
+    public ConfigBuilder minRuns(int minRuns) {
+        this.minRuns = minRuns;
+        return this;
+    }
+
+    public ConfigBuilder drop(boolean drop) {
+        this.drop = drop;
+        return this;
+    }
+
     public ConfigBuilder visProps(String vis) {
         this.vis = vis;
         return this;
@@ -99,7 +181,7 @@ public class ConfigBuilder {
     }
 
     public Config build() {
-        return new Config(dbUrl, stderr, spt, runs, save, r, dist, skip, seed, from, to, step, div,
-                targets, parseList(targets), stats, remote, refresh, vis);
+        return new Config(dbUrl, stderr, spt, graph, layout, rng, runs, threads, pibfsThreads, pibfsSpin, pibfsShared,
+                storeFile, save, checkpoint, resume, precision, minRuns, drop, r, dist, skip, seed, from, to, step, div, targets, parseList(targets), fold, roots, early, stats, remote, refresh, vis);
     }
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+package percolation.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+
+// unbounded fifo of longs outside the java heap: a list of direct chunks that are taken from and returned to a
+// pool, which queues of the same engine may share (e.g. the distance buckets of BigIBFS). closing the pool frees
+// the chunks it holds
+public class LongQueue implements AutoCloseable {
+
+    private final Pool pool;
+    private final ArrayDeque<ByteBuffer> chunks = new ArrayDeque<>();
+    private int head, tail; // read index in the first chunk and write index in the last chunk
+    private long size;
+
+    public LongQueue(Pool pool) {
+        this.pool = pool;
+    }
+
+    public void enqueue(long x) {
+        if (chunks.isEmpty() || tail == pool.chunk) {
+            chunks.addLast(pool.take());
+            tail = 0;
+        }
+        chunks.peekLast().putLong(8 * tail++, x);
+        size++;
+    }
+
+    public long dequeue() {
+        if (head == pool.chunk) { // the first chunk was fully read
+            pool.give(chunks.removeFirst());
+            head = 0;
+        }
+        size--;
+        return chunks.peekFirst().getLong(8 * head++);
+    }
+
+    public long size() {
+        return size;
+    }
+
+    // return all chunks to the pool
+    public void clear() {
+        while (!chunks.isEmpty())
+            pool.give(chunks.removeFirst());
+        head = tail = 0;
+        size = 0;
+    }
+
+    @Override public void close() {
+        clear();
+    }
+
+    // free direct chunks of a fixed size
+    public static class Pool implements AutoCloseable {
+        private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+        private final int chunk; // longs per chunk
+
+        public Pool() {
+            this(1 << 16); // 512KB chunks
+        }
+
+        public Pool(int chunk) {
+            this.chunk = chunk;
+        }
+
+        ByteBuffer take() {
+            ByteBuffer b = free.pollLast();
+            return b != null ? b : ByteBuffer.allocateDirect(8 * chunk).order(ByteOrder.nativeOrder());
+        }
+
+        void give(ByteBuffer b) {
+            free.addLast(b);
+        }
+
+        // free the chunks that are not in a queue (close the queues first)
+        @Override public void close() {
+            while (!free.isEmpty())
+                OffHeapInts.free(free.pollLast());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package percolation.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// long-indexed int array outside the java heap: direct buffers of 2^chunkBits ints each, so the length is not
+// limited by the int range and the heap (and the gc) never sees the data. the total is limited by
+// -XX:MaxDirectMemorySize (the max heap size by default). close() frees the buffers at once, without waiting for
+// the gc to collect them
+public class OffHeapInts implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(OffHeapInts.class);
+
+    private static final int FILL = 1 << 14; // ints per bulk fill copy
+    private static final Object UNSAFE; // sun.misc.Unsafe, to free the direct buffers (null if not accessible)
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method cleaner = null;
+        try {
+            Class<?> c = Class.forName("sun.misc.Unsafe");
+            Field f = c.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            unsafe = f.get(null);
+            cleaner = c.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Direct buffers are released by the gc only: {}", e.toString());
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = cleaner;
+    }
+
+    private final long length;
+    private final int bits, mask;
+    private ByteBuffer[] chunks;
+
+    public OffHeapInts(long length) {
+        this(length, 28); // 1GB chunks
+    }
+
+    public OffHeapInts(long length, int chunkBits) {
+        if (chunkBits < 1 || chunkBits > 28)
+            throw new IllegalArgumentException("chunkBits must be between 1 and 28: " + chunkBits);
+        this.length = length;
+        bits = chunkBits;
+        mask = (1 << bits) - 1;
+        chunks = new ByteBuffer[(int) ((length + mask) >>> bits)];
+        for (int c = 0; c < chunks.length; c++)
+            chunks[c] = ByteBuffer.allocateDirect(4 * (int) Math.min(1L << bits, length - ((long) c << bits)))
+                    .order(ByteOrder.nativeOrder());
+    }
+
+    public int get(long i) {
+        return chunks[(int) (i >>> bits)].getInt(((int) i & mask) << 2);
+    }
+
+    public void set(long i, int v) {
+        chunks[(int) (i >>> bits)].putInt(((int) i & mask) << 2, v);
+    }
+
+    // set every element to v (bulk copies of a filled block)
+    public void fill(int v) {
+        ByteBuffer block = ByteBuffer.allocateDirect(4 * Math.min(FILL, 1 << bits)).order(ByteOrder.nativeOrder());
+        while (block.hasRemaining())
+            block.putInt(v);
+        for (ByteBuffer chunk : chunks) {
+            ByteBuffer dst = chunk.duplicate().clear();
+            while (dst.hasRemaining())
+                dst.put(block.clear().limit(Math.min(block.capacity(), dst.remaining())));
+        }
+    }
+
+    public long length() {
+        return length;
+    }
+
+    @Override public void close() {
+        if (chunks == null)
+            return;
+        for (ByteBuffer chunk : chunks)
+            free(chunk);
+        chunks = null;
+    }
+
+    // release the memory of a direct buffer now. b must not be used afterwards, nor be a slice or a duplicate
+    static void free(ByteBuffer b) {
+        if (INVOKE_CLEANER == null)
+            return; // released when b is collected
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, b);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -8,7 +8,7 @@ public interface Queue extends Cloneable {
     int last();
     int size();
     void clear();
-    int[] arr();
+    int[] arr(); // the values from start() to end(), or null if the queue is not backed by a single array
     int start();
     int end();
 }
@@ -0,0 +1,153 @@
+package percolation.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+
+// monotone priority queue of vertex ids keyed by an external int array (e.g. distances), based on a radix heap:
+// bucket 0 holds the values whose key equals the last dequeued key and bucket i > 0 the values whose key differs
+// from it first at bit i - 1. enqueued keys must not be smaller than the last dequeued key (until clear() is
+// called). a value whose key decreases while it is queued is simply enqueued again and its old entry is skipped
+public class RadixQueue implements Queue {
+
+    private static final Logger log = LoggerFactory.getLogger(RadixQueue.class);
+
+    private final int[] keys; // the keys of the values (read when a value is enqueued)
+    private final int[] queued; // the key each value is queued with, or -1 if it is not queued
+    private final int[][] b = new int[33][]; // buckets of (key, value) pairs
+    private final int[] bs = new int[33]; // bucket sizes (in ints)
+    private int last, size; // last dequeued key and number of queued values
+
+    public RadixQueue(int[] keys) {
+
+        log.debug("Creating RadixQueue object");
+
+        this.keys = keys;
+        queued = new int[keys.length];
+        Arrays.fill(queued, -1);
+        for (int i = 0; i < b.length; i++)
+            b[i] = new int[16];
+    }
+
+    private int bucket(int key) {
+        return key == last ? 0 : 32 - Integer.numberOfLeadingZeros(key ^ last);
+    }
+
+    private void push(int i, int key, int x) {
+        if (bs[i] == b[i].length)
+            b[i] = Arrays.copyOf(b[i], 2 * b[i].length);
+        b[i][bs[i]++] = key;
+        b[i][bs[i]++] = x;
+    }
+
+    // move the values of the first non-empty bucket to the lower buckets, relative to their minimal key
+    private void refill() {
+        int i = 1;
+        while (bs[i] == 0)
+            i++;
+        int[] a = b[i];
+        int n = bs[i], min = Integer.MAX_VALUE;
+        for (int j = 0; j < n; j += 2)
+            min = Math.min(min, a[j]);
+        last = min;
+        bs[i] = 0;
+        for (int j = 0; j < n; j += 2)
+            push(bucket(a[j]), a[j], a[j + 1]); // always a bucket lower than i
+    }
+
+    @Override
+    public void enqueue(int x) {
+        int key = keys[x];
+        assert key >= last : "key " + key + " is smaller than the last dequeued key " + last;
+        if (queued[x] == -1)
+            size++;
+        queued[x] = key;
+        push(bucket(key), key, x);
+    }
+
+    @Override
+    public void enqueue(int x, int y) {
+        enqueue(x);
+        enqueue(y);
+    }
+
+    @Override
+    public int dequeue() {
+        while (true) {
+            if (bs[0] == 0)
+                refill();
+            int x = b[0][--bs[0]], key = b[0][--bs[0]];
+            if (queued[x] == key) { // otherwise it is an old entry of a value that was enqueued again
+                queued[x] = -1;
+                size--;
+                return x;
+            }
+        }
+    }
+
+    @Override
+    public int first() {
+        while (true) {
+            if (bs[0] == 0)
+                refill();
+            int x = b[0][bs[0] - 1];
+            if (queued[x] == b[0][bs[0] - 2])
+                return x;
+            bs[0] -= 2; // drop the old entry
+        }
+    }
+
+    // the value with the largest key (the last one to be dequeued among those with that key). a higher bucket
+    // holds larger keys, so only the highest bucket with a current entry is scanned
+    @Override
+    public int last() {
+        for (int i = b.length - 1; i >= 0; i--) {
+            int x = -1;
+            for (int j = 0, max = -1; j < bs[i]; j += 2)
+                if (queued[b[i][j + 1]] == b[i][j] && b[i][j] >= max) {
+                    max = b[i][j];
+                    x = b[i][j + 1];
+                }
+            if (x != -1)
+                return x;
+        }
+        throw new IllegalStateException("empty queue");
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < b.length; i++) {
+            for (int j = 1; j < bs[i]; j += 2)
+                queued[b[i][j]] = -1;
+            bs[i] = 0;
+        }
+        last = size = 0;
+    }
+
+    // the values are kept in the buckets, not in a single array
+    @Override
+    public int[] arr() {
+        return null;
+    }
+
+    @Override
+    public int start() {
+        return 0;
+    }
+
+    @Override
+    public int end() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "size=" + size + ", last=" + last;
+    }
+}
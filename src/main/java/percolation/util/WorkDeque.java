@@ -0,0 +1,63 @@
+package percolation.util;
+
+import java.util.Arrays;
+
+// growable ring of vertex ids shared between its owner, which pushes and polls whole chunks, and idle threads,
+// which steal half of it at once. every operation takes the deque's lock, once per chunk rather than per vertex
+public class WorkDeque {
+    private int[] a = new int[1 << 10];
+    private int head, size; // index of the first element and number of elements
+
+    // append a[from..to)
+    public synchronized void push(int[] src, int from, int to) {
+        int n = to - from;
+        if (size + n > a.length)
+            grow(size + n);
+        for (int i = from, j = head + size; i < to; i++, j++)
+            a[j & (a.length - 1)] = src[i];
+        size += n;
+    }
+
+    // move up to max elements from the head to dst and return their number
+    public synchronized int poll(int[] dst, int max) {
+        int n = Math.min(max, size);
+        for (int i = 0; i < n; i++)
+            dst[i] = a[(head + i) & (a.length - 1)];
+        head = (head + n) & (a.length - 1);
+        size -= n;
+        return n;
+    }
+
+    // move the tail half (rounded up, at most dst.length elements) of this deque to dst and return its size
+    public synchronized int steal(int[] dst) {
+        int n = Math.min((size + 1) >>> 1, dst.length);
+        size -= n;
+        for (int i = 0; i < n; i++)
+            dst[i] = a[(head + size + i) & (a.length - 1)];
+        return n;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        head = size = 0;
+    }
+
+    private void grow(int min) {
+        int[] b = new int[Integer.highestOneBit(min - 1) << 1];
+        for (int i = 0; i < size; i++)
+            b[i] = a[(head + i) & (a.length - 1)];
+        a = b;
+        head = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        int[] b = new int[size];
+        for (int i = 0; i < size; i++)
+            b[i] = a[(head + i) & (a.length - 1)];
+        return Arrays.toString(b);
+    }
+}
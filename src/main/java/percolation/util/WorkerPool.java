@@ -0,0 +1,128 @@
+package percolation.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
+
+// fixed set of worker threads that run one task at a time, each worker with its own index. idle workers and the
+// caller waiting for a task spin for a while before they park, so back-to-back short tasks (e.g. probability
+// steps that activate only a handful of edges) do not pay the park/unpark latency. a shared pool is reused by
+// every spt object with the same settings (tasks of different objects then run one after the other) and is
+// shut down when the last of them closes it
+public class WorkerPool implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkerPool.class);
+    private static final Map<String, WorkerPool> pools = new HashMap<>(); // shared pools by settings
+
+    private final String key; // key in pools (null if not shared)
+    private final Thread[] workers;
+    private final int spin; // spin iterations before parking
+    private final AtomicInteger running = new AtomicInteger(); // workers that did not finish the current task
+    private volatile IntConsumer task;
+    private volatile int gen; // incremented for every task
+    private volatile Thread caller; // thread waiting for the current task
+    private volatile boolean shutdown;
+    private volatile Throwable failure; // first exception thrown by the current task
+    private int refs; // users of a shared pool
+
+    // static factory
+    public static WorkerPool create(Config gc) {
+        if (!gc.pibfsShared)
+            return new WorkerPool(null, gc.pibfsThreads, gc.pibfsSpin);
+        synchronized (pools) {
+            WorkerPool pool = pools.computeIfAbsent(gc.pibfsThreads + "/" + gc.pibfsSpin,
+                    key -> new WorkerPool(key, gc.pibfsThreads, gc.pibfsSpin));
+            pool.refs++;
+            return pool;
+        }
+    }
+
+    private WorkerPool(String key, int threads, int spin) {
+
+        log.debug("Creating WorkerPool object (threads={}, spin={}, shared={})", threads, spin, key != null);
+
+        this.key = key;
+        this.spin = spin;
+        workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            int idx = i;
+            workers[i] = new Thread(() -> work(idx), "pool-worker-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    public int threads() {
+        return workers.length;
+    }
+
+    // a worker of the current task threw: the tasks that wait for each other must return, run rethrows the failure
+    public boolean failed() {
+        return failure != null;
+    }
+
+    // run task(i) on every worker i and wait until all of them return
+    public synchronized void run(IntConsumer task) {
+        if (shutdown)
+            throw new IllegalStateException("worker pool is closed");
+        this.task = task;
+        caller = Thread.currentThread();
+        running.set(workers.length);
+        gen++; // publish the task
+        for (Thread w : workers)
+            LockSupport.unpark(w);
+        for (int i = 0; running.get() != 0; i++)
+            idle(i);
+        this.task = null;
+        Throwable t = failure;
+        failure = null;
+        if (t != null)
+            throw new RuntimeException("worker failed", t);
+    }
+
+    private void work(int idx) {
+        for (int seen = 0; ; ) {
+            for (int i = 0; gen == seen && !shutdown; i++)
+                idle(i);
+            if (shutdown)
+                return;
+            seen = gen;
+            try {
+                task.accept(idx);
+            } catch (Throwable t) {
+                failure = t;
+            }
+            if (running.decrementAndGet() == 0)
+                LockSupport.unpark(caller);
+        }
+    }
+
+    private void idle(int i) {
+        if (i < spin)
+            Thread.onSpinWait();
+        else
+            LockSupport.park(this);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        if (key != null)
+            synchronized (pools) {
+                if (--refs > 0)
+                    return;
+                pools.remove(key);
+            }
+        synchronized (this) { // wait for a running task
+            shutdown = true;
+        }
+        for (Thread w : workers) {
+            LockSupport.unpark(w);
+            w.join();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package percolation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import percolation.graphs.BigGraph;
+import percolation.spts.BFS;
+import percolation.spts.BigBFS;
+import percolation.spts.BigIBFS;
+import percolation.util.Config;
+import percolation.util.ConfigBuilder;
+import percolation.util.IntQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BigGraphTest {
+
+    private static Config config(int r, int skip) {
+        return new ConfigBuilder().radius(r).skip(skip).from(30).to(100).step(7).rng("split").targets("all").stats("none").build();
+    }
+
+    @ParameterizedTest @CsvSource({ "3, 0", "20, 1", "21, 2" })
+    void idsAndEdgesMatchTheRowLayout(int r, int skip) {
+        Config gc = config(r, skip);
+        Graph rows = new Graph(gc);
+        BigGraph big = (BigGraph) BigGraph.create(gc);
+        rows.init(5L);
+        big.init(5L);
+        assertEquals(gc.vs, big.vertices());
+        assertEquals(rows.root, big.id(big.root));
+        for (int vid = 0; vid < gc.vs; vid++) {
+            int x = rows.x(vid), y = rows.y(vid);
+            assertEquals(vid, big.id(x, y));
+            assertEquals(x, big.x((long) vid));
+            assertEquals(y, big.y((long) vid));
+            for (int dir = 0; dir < 4; dir++) {
+                long next = big.next((long) vid, dir);
+                assertEquals(rows.next(vid, dir), next);
+                if (next >= 0)
+                    assertEquals(rows.epn(vid, dir), big.epn((long) vid, next, dir)); // the same graph is sampled
+                int nvid = big.next(big.vid(x, y), dir);
+                assertEquals(next, nvid < 0 ? -1 : big.id(nvid));
+            }
+        }
+    }
+
+    @ParameterizedTest @ValueSource(strings = { "BigBFS", "BigIBFS" })
+    void distancesMatchBfs(String name) throws Exception {
+        for (int skip = 0; skip <= 1; skip++) {
+            Config gc = config(30, skip);
+            Graph g = new Graph(gc), big = BigGraph.create(gc);
+            int[] ts = Graph.targets(gc, big);
+            try (SPT bfs = BFS.create(gc, g); SPT spt = SPT.load(gc, big, name)) {
+                for (long seed = 1; seed <= 5; seed++) {
+                    bfs.init(seed);
+                    spt.init(seed);
+                    for (int pn = gc.from; pn <= gc.to; pn += gc.step) {
+                        bfs.preUpdate(pn);
+                        bfs.update(pn);
+                        spt.preUpdate(pn);
+                        spt.update(pn);
+                        for (int tid : ts)
+                            assertEquals(bfs.dist(g.vid(big.x(tid), big.y(tid))), spt.dist(tid));
+                        for (int vid = 0; vid < gc.vs; vid++)
+                            assertEquals(bfs.dist(vid), ((BigBFS) spt).dist((long) vid));
+                    }
+                }
+            }
+        }
+    }
+
+    // a search through the per-vertex calls on the int vids, as the decorated engines run it
+    @Test
+    void perVertexCallsSearchTheIntVids() throws Exception {
+        Config gc = config(20, 0);
+        Graph g = new Graph(gc), big = BigGraph.create(gc);
+        try (SPT bfs = BFS.create(gc, g); SPT spt = SPT.load(gc, big, "BigBFS")) {
+            bfs.init(3L);
+            spt.init(3L);
+            bfs.preUpdate(gc.to);
+            bfs.update(gc.to);
+            spt.preUpdate(gc.to);
+            IntQueue q = new IntQueue(new int[gc.vs]);
+            spt.enqueue(q, big.root);
+            while (q.size() != 0)
+                spt.neighbors(q, spt.dequeue(q));
+            for (int vid = 0; vid < gc.vs; vid++)
+                assertEquals(bfs.dist(vid), ((BigBFS) spt).dist((long) vid));
+        }
+    }
+
+    @Test
+    void rejectsOtherGraphs() {
+        Config gc = config(3, 0);
+        assertThrows(RuntimeException.class, () -> BigBFS.create(gc, new Graph(gc)));
+        assertThrows(RuntimeException.class, () -> BigIBFS.create(gc, new Graph(gc)));
+    }
+
+    @Test
+    void requiresTheBigEnginesWithoutHooks() {
+        ConfigBuilder b = new ConfigBuilder().radius(3).rng("split").graph("BigGraph").stats("min");
+        assertEquals("BigIBFS", b.spt("BigIBFS").build().spt);
+        assertThrows(RuntimeException.class, () -> b.spt("BFS").build()); // int vertex ids
+        assertThrows(RuntimeException.class, () -> b.spt("BigBFS").stats("full").build());
+    }
+}
@@ -0,0 +1,118 @@
+package percolation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import percolation.db.ColumnStore;
+import percolation.db.SimColumnDec;
+import percolation.util.Config;
+import percolation.util.ConfigBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnStoreTest {
+
+    private static ConfigBuilder builder() {
+        return new ConfigBuilder().spt("BFS").seed(11).runs(5).radius(10).from(40).to(100).step(10)
+                .targets("all").stats("none");
+    }
+
+    private static long[][][] direct(Config gc) throws Exception {
+        Graph g = new Graph(gc);
+        int[] targets = Graph.targets(gc, g);
+        long[][][] res = new long[2][gc.ps][targets.length];
+        try (SPT spt = SPT.load(gc, g, gc.spt)) {
+            Sim sim = new SimBase(gc, spt, targets);
+            sim.set(new SimDec(sim) {
+                @Override public void save(int pi, int tid, long dsum, int dcnt) {
+                    res[0][pi][tid] += dsum;
+                    res[1][pi][tid] += dcnt;
+                }
+            });
+            sim.run(gc.seed);
+        }
+        return res;
+    }
+
+    private static void stored(Config gc) throws Exception {
+        Graph g = new Graph(gc);
+        int[] targets = Graph.targets(gc, g);
+        try (SPT spt = SPT.load(gc, g, gc.spt);
+             ColumnStore cs = ColumnStore.open(Path.of(gc.storeFile), gc, g, targets)) {
+            Sim sim = new SimBase(gc, g, spt, targets);
+            sim = sim.set(new SimColumnDec(gc, sim, cs));
+            sim.run(gc.seed);
+        }
+    }
+
+    @Test
+    void simulationsAreMergedIntoTheFile(@TempDir Path dir) throws Exception {
+        long[][][] expected = direct(builder().build());
+        Config gc = builder().storeFile(dir.resolve("res.bin").toString()).saveEvery(-2).build();
+        stored(gc);
+        stored(gc); // the same seeds again: every cell doubles
+        try (ColumnStore cs = ColumnStore.read(Path.of(gc.storeFile))) {
+            assertEquals(10, cs.runs());
+            assertEquals(gc.ps, cs.ps());
+            assertEquals(60, cs.pn(2));
+            for (int pi = 0; pi < cs.ps(); pi++) {
+                long dsum = 0, dcnt = 0;
+                for (int tid = 0; tid < cs.ts(); tid++) {
+                    assertEquals(2 * expected[0][pi][tid], cs.dsum(pi, tid));
+                    assertEquals(2 * expected[1][pi][tid], cs.dcnt(pi, tid));
+                    if (cs.y(tid) == 0 && Math.abs(cs.x(tid)) == 4) {
+                        dsum += cs.dsum(pi, tid);
+                        dcnt += cs.dcnt(pi, tid);
+                    }
+                }
+                assertTrue(dcnt > 0);
+                assertEquals((double) dsum / dcnt / 4 - 1, cs.stretch(pi, 4, tid -> cs.y(tid) == 0), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    void onlyTheCompletedRunsAreCounted(@TempDir Path dir) throws Exception {
+        Config gc = builder().from(90).step(10).precision(100).minRuns(2).storeFile(dir.resolve("res.bin").toString())
+                .saveEvery(-1).build();
+        stored(gc);
+        try (ColumnStore cs = ColumnStore.read(Path.of(gc.storeFile))) {
+            assertTrue(cs.runs() < gc.runs); // stopped on the precision
+            assertEquals(cs.runs(), cs.dcnt(cs.ps() - 1, 0)); // every run reaches every target at p = 1
+            for (int pi = 0; pi < cs.ps(); pi++)
+                assertEquals(cs.runs(), cs.runs(pi));
+        }
+    }
+
+    @Test
+    void theDroppedStepsCountFewerRuns(@TempDir Path dir) throws Exception {
+        Config gc = builder().runs(8).from(90).step(10).precision(0.01).minRuns(2).drop(true)
+                .storeFile(dir.resolve("res.bin").toString()).saveEvery(-1).build();
+        stored(gc);
+        try (ColumnStore cs = ColumnStore.read(Path.of(gc.storeFile))) {
+            assertEquals(8, cs.runs());
+            assertEquals(8, cs.runs(0));
+            assertEquals(2, cs.runs(1)); // the distances at p = 1 are exact, dropped after runs.min
+            assertEquals(2, cs.dcnt(1, 0));
+        }
+    }
+
+    @Test
+    void emptyFileIsInitialized(@TempDir Path dir) throws Exception {
+        Path file = Files.createFile(dir.resolve("res.bin")); // left empty, e.g. by a run that failed early
+        stored(builder().storeFile(file.toString()).saveEvery(-1).build());
+        try (ColumnStore cs = ColumnStore.read(file)) {
+            assertEquals(5, cs.runs());
+        }
+    }
+
+    @Test
+    void anotherConfigIsRejected(@TempDir Path dir) throws Exception {
+        String file = dir.resolve("res.bin").toString();
+        stored(builder().storeFile(file).saveEvery(-1).build());
+        assertThrows(IOException.class, () -> stored(builder().storeFile(file).saveEvery(-1).step(20).build()));
+    }
+}
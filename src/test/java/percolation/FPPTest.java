@@ -0,0 +1,67 @@
+package percolation;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import percolation.spts.BFS;
+import percolation.spts.FPP;
+import percolation.util.Config;
+import percolation.util.ConfigBuilder;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+import static java.lang.Integer.MAX_VALUE;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FPPTest {
+
+    @ParameterizedTest @CsvSource({ "0, legacy", "1, legacy", "0, split", "1, split" })
+    void passageTimesAreTheWeightedShortestPaths(int skip, String rng) throws Exception {
+        Config gc = new ConfigBuilder().radius(20).skip(skip).rng(rng).from(40).to(100).step(6).stats("none").build();
+        Graph g1 = new Graph(gc), g2 = new Graph(gc);
+        try (SPT fpp = FPP.create(gc, g1); SPT bfs = BFS.create(gc, g2)) {
+            for (long seed = 1; seed <= 5; seed++) {
+                fpp.init(seed);
+                bfs.init(seed);
+                for (int pn = gc.from; pn <= gc.to; pn += gc.step) {
+                    fpp.preUpdate(pn);
+                    fpp.update(pn);
+                    bfs.preUpdate(pn);
+                    bfs.update(pn);
+                    int[] times = dijkstra(g2);
+                    for (int vid = 0; vid < gc.vs; vid++) {
+                        assertEquals(times[vid], fpp.dist(vid));
+                        int hops = bfs.dist(vid);
+                        assertEquals(hops == MAX_VALUE, times[vid] == MAX_VALUE);
+                        if (hops != MAX_VALUE)
+                            assertTrue(hops <= times[vid] && times[vid] <= (long) hops * (gc.div + 1));
+                    }
+                }
+            }
+        }
+    }
+
+    // reference dijkstra over the open edges, the weight of an edge is its numerator plus one
+    private static int[] dijkstra(Graph g) {
+        int[] dists = new int[g.vs];
+        Arrays.fill(dists, MAX_VALUE);
+        dists[g.root] = 0;
+        PriorityQueue<long[]> pq = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        pq.add(new long[]{ 0, g.root });
+        while (!pq.isEmpty()) {
+            long[] e = pq.poll();
+            int vid = (int) e[1];
+            if (e[0] > dists[vid])
+                continue;
+            for (int dir = 0; dir < 4; dir++)
+                if (g.isEdgeEnabled(vid, dir)) {
+                    int next = g.next(vid, dir), time = dists[vid] + g.epn(vid, dir) + 1;
+                    if (time < dists[next]) {
+                        dists[next] = time;
+                        pq.add(new long[]{ time, next });
+                    }
+                }
+        }
+        return dists;
+    }
+}
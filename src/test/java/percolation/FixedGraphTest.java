@@ -47,10 +47,18 @@ public class FixedGraphTest extends GraphTest {
         return IntStream.range(0, fnd.length).mapToObj(i -> Arguments.of(g, exp[i], arr, R, frm[i], fnd[i]));
     }
 
+    private static int[][] epn(Graph g) {
+        int[][] epn = new int[4][g.vs];
+        for (int dir = 0; dir < 4; dir++)
+            for (int vid = 0; vid < g.vs; vid++)
+                epn[dir][vid] = g.epn(vid, dir);
+        return epn;
+    }
+
     @ParameterizedTest @MethodSource("args1")
     public void resetRetainsRandomEdgeProbabilitiesAccordingToSeed(Graph g) {
         g.init(1L);
-        assertTrue(Arrays.deepEquals(ep, g.epn));
+        assertTrue(Arrays.deepEquals(ep, epn(g)));
     }
 
     @ParameterizedTest @MethodSource("args1")
@@ -58,7 +66,7 @@ public class FixedGraphTest extends GraphTest {
         g.init(1L);
         for (int vid = 0; vid < g.vs; vid++)
             if (g.isNotAt(R, vid))
-                assertEquals(g.epn[R][vid], g.epn[L][g.next(vid, R)]);
+                assertEquals(g.epn(vid, R), g.epn(g.next(vid, R), L));
     }
 
     @ParameterizedTest @MethodSource("args1")
@@ -66,7 +74,7 @@ public class FixedGraphTest extends GraphTest {
         g.init(1L);
         for (int vid = 0; vid < g.vs; vid++)
             if (g.isNotAt(D, vid))
-                assertEquals(g.epn[D][vid], g.epn[U][g.next(vid, D)]);
+                assertEquals(g.epn(vid, D), g.epn(g.next(vid, D), U));
     }
 
     @ParameterizedTest @MethodSource("args1")
@@ -76,9 +84,25 @@ public class FixedGraphTest extends GraphTest {
         for (int dir = 0; dir < ep.length; dir++)
             for (int vid = 0; vid < ep[dir].length; vid++)
                 if (ep[dir][vid] == MAX_VALUE)
-                    assertEquals(MAX_VALUE, g.epn[dir][vid]);
+                    assertEquals(MAX_VALUE, g.epn(vid, dir));
                 else
-                    assertNotEquals(ep[dir][vid], g.epn[dir][vid]);
+                    assertNotEquals(ep[dir][vid], g.epn(vid, dir));
+    }
+
+    @ParameterizedTest @MethodSource("args1")
+    void sortOrdersEdgesByProbabilityNumerator(Graph g) {
+        g.init(1L);
+        for (int dir = R; dir <= D; dir++) {
+            int[] a = new int[g.vs], off = new int[102];
+            int n = g.sort(a, off, dir);
+            assertEquals(Arrays.stream(ep[dir]).filter(e -> e != MAX_VALUE).count(), n);
+            for (int i = 0; i < n; i++) {
+                int pn = g.epn(a[i], dir);
+                assertTrue(off[pn] <= i && i < off[pn + 1]);
+            }
+            assertEquals(0, off[0]);
+            assertEquals(n, off[101]);
+        }
     }
 
     @ParameterizedTest @MethodSource("args2")
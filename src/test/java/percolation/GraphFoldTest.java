@@ -0,0 +1,64 @@
+package percolation;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import percolation.util.Config;
+import percolation.util.ConfigBuilder;
+
+import java.util.Arrays;
+
+import static java.lang.Integer.MAX_VALUE;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphFoldTest {
+
+    private static Config config(int skip, boolean fold) {
+        return new ConfigBuilder().radius(12).skip(skip).targets("all").fold(fold).build();
+    }
+
+    // every symmetry maps the edges of the graph (with the skip pattern) onto edges
+    @ParameterizedTest @CsvSource({ "0, 8", "1, 2", "2, 1", "3, 1" })
+    void symmetriesMapTheGraphOntoItself(int skip, int count) {
+        Graph g = new Graph(config(skip, true));
+        int[] syms = Graph.symmetries(skip);
+        assertEquals(count, syms.length);
+        assertEquals(0, syms[0]); // the identity
+        for (int sym : syms)
+            for (int vid = 0; vid < g.vs; vid++)
+                for (int dir = 0; dir < 4; dir++) {
+                    int next = g.next(vid, dir);
+                    if (next < 0)
+                        continue;
+                    int[] p = Graph.image(sym, g.x(vid), g.y(vid)), q = Graph.image(sym, g.x(next), g.y(next));
+                    int pv = g.vid(p[Graph.X], p[Graph.Y]), qv = g.vid(q[Graph.X], q[Graph.Y]);
+                    assertEquals(g.epn(vid, dir) != MAX_VALUE, g.epn(pv, g.dir(pv, qv)) != MAX_VALUE);
+                }
+    }
+
+    @ParameterizedTest @ValueSource(ints = { 0, 1, 2 })
+    void classesPartitionTheTargets(int skip) {
+        Config gc = config(skip, true);
+        Graph g = new Graph(gc);
+        int[] targets = Graph.targets(gc, g);
+        Graph.Fold fold = Graph.fold(gc, g, targets);
+        assertEquals(targets.length, Arrays.stream(fold.members()).mapToInt(m -> m.length).sum());
+        int[] syms = Graph.symmetries(skip);
+        for (int c = 0; c < fold.reps().length; c++) {
+            int rep = fold.reps()[c];
+            assertTrue(Arrays.stream(fold.members()[c]).anyMatch(tid -> targets[tid] == rep));
+            for (int tid : fold.members()[c]) { // every member is an image of the representative
+                int x = g.x(targets[tid]), y = g.y(targets[tid]);
+                assertTrue(Arrays.stream(syms).anyMatch(sym -> Arrays.equals(new int[]{ x, y },
+                        Graph.image(sym, g.x(rep), g.y(rep)))));
+            }
+        }
+        for (int c = 0; skip == 0 && c < fold.reps().length; c++) { // 8 images off the axes and diagonals, else 4
+            int x = g.x(fold.reps()[c]), y = g.y(fold.reps()[c]);
+            assertEquals(x == 0 || y == 0 || Math.abs(x) == Math.abs(y) ? 4 : 8, fold.members()[c].length);
+            assertTrue(x >= y && y >= 0); // canonical
+        }
+        Graph.Fold none = Graph.fold(config(skip, false), g, targets);
+        assertArrayEquals(targets, none.reps());
+    }
+}
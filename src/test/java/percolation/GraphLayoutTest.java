@@ -0,0 +1,70 @@
+package percolation;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import percolation.util.ConfigBuilder;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphLayoutTest {
+
+    private static Graph graph(int r, int skip, String layout, String rng) {
+        return new Graph(new ConfigBuilder().radius(r).skip(skip).layout(layout).rng(rng).build());
+    }
+
+    @ParameterizedTest @CsvSource({
+            "morton, 3, 0, legacy", "morton, 20, 1, split", "hilbert, 3, 1, split", "hilbert, 20, 0, legacy" })
+    void layoutOnlyRenumbersTheVertices(String layout, int r, int skip, String rng) {
+        Graph rows = graph(r, skip, "rows", rng), g = graph(r, skip, layout, rng);
+        rows.init(5L);
+        g.init(5L);
+        assertEquals(0, g.x(g.root));
+        assertEquals(0, g.y(g.root));
+        for (int vid = 0; vid < g.vs; vid++) {
+            int x = g.x(vid), y = g.y(vid), rid = rows.vid(x, y);
+            assertEquals(vid, g.vid(x, y));
+            assertEquals(rid, g.cid(vid));
+            for (int dir = 0; dir < 4; dir++) {
+                assertEquals(rows.epn(rid, dir), g.epn(vid, dir)); // the same graph is sampled
+                int next = g.next(vid, dir), rnext = rows.next(rid, dir);
+                assertEquals(rnext < 0, next < 0);
+                if (next >= 0) {
+                    assertEquals(rows.x(rnext), g.x(next));
+                    assertEquals(rows.y(rnext), g.y(next));
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest @ValueSource(strings = { "morton", "hilbert" })
+    void curveIsABijection(String layout) {
+        int n = 16;
+        BitSet seen = new BitSet(n * n);
+        for (int x = 0; x < n; x++)
+            for (int y = 0; y < n; y++)
+                seen.set((int) Graph.curve(layout, x, y, n));
+        assertEquals(n * n, seen.cardinality());
+        assertEquals(n * n, seen.length());
+    }
+
+    @ParameterizedTest @ValueSource(strings = { "morton", "hilbert" })
+    void neighboursAreCloserThanInTheRowLayout(String layout) {
+        Graph rows = graph(200, 0, "rows", "legacy"), g = graph(200, 0, layout, "legacy");
+        assertTrue(10 * gap(g) < gap(rows));
+    }
+
+    // mean vid difference between neighbours
+    private static double gap(Graph g) {
+        long sum = 0, cnt = 0;
+        for (int vid = 0; vid < g.vs; vid++)
+            for (int dir = 0; dir < 4; dir++)
+                if (g.next(vid, dir) >= 0) {
+                    sum += Math.abs(g.next(vid, dir) - vid);
+                    cnt++;
+                }
+        return (double) sum / cnt;
+    }
+}
@@ -0,0 +1,64 @@
+package percolation;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import percolation.util.Config;
+import percolation.util.ConfigBuilder;
+
+import static java.lang.Integer.MAX_VALUE;
+import static org.junit.jupiter.api.Assertions.*;
+import static percolation.Graph.*;
+
+public class GraphRngTest {
+
+    private static Graph graph(int r, String rng) {
+        Config gc = new ConfigBuilder().radius(r).skip(1).div(1000).rng(rng).build();
+        return new Graph(gc);
+    }
+
+    @ParameterizedTest @ValueSource(ints = { 3, 300 })
+    void splitInitIsDeterministicPerSeed(int r) {
+        Graph g1 = graph(r, "split"), g2 = graph(r, "split");
+        g1.init(1L);
+        g2.init(2L);
+        g2.init(1L);
+        for (int dir = 0; dir < 4; dir++)
+            for (int vid = 0; vid < g1.vs; vid++)
+                assertEquals(g1.epn(vid, dir), g2.epn(vid, dir));
+    }
+
+    @ParameterizedTest @ValueSource(ints = { 3, 300 })
+    void splitInitKeepsNonEdgesAndRange(int r) {
+        Graph legacy = graph(r, "legacy"), split = graph(r, "split");
+        legacy.init(1L);
+        split.init(1L);
+        long sum = 0, cnt = 0, diff = 0;
+        for (int dir = 0; dir < 4; dir++)
+            for (int vid = 0; vid < split.vs; vid++) {
+                assertEquals(legacy.epn(vid, dir) == MAX_VALUE, split.epn(vid, dir) == MAX_VALUE);
+                if (split.epn(vid, dir) != MAX_VALUE) {
+                    assertTrue(split.epn(vid, dir) >= 0 && split.epn(vid, dir) <= 1000);
+                    sum += split.epn(vid, dir);
+                    diff += split.epn(vid, dir) != legacy.epn(vid, dir) ? 1 : 0;
+                    cnt++;
+                }
+            }
+        assertTrue(diff > 0);
+        if (r > 100) // the mean of a uniform [0, 1000] sample is close to 500
+            assertEquals(500.0, (double) sum / cnt, 5.0);
+    }
+
+    @ParameterizedTest @ValueSource(ints = { 3, 300 })
+    void splitInitChangesWithSeed(int r) {
+        Graph g1 = graph(r, "split"), g2 = graph(r, "split");
+        g1.init(1L);
+        g2.init(2L);
+        int same = 0, cnt = 0;
+        for (int vid = 0; vid < g1.vs; vid++)
+            if (g1.epn(vid, R) != MAX_VALUE) {
+                same += g1.epn(vid, R) == g2.epn(vid, R) ? 1 : 0;
+                cnt++;
+            }
+        assertTrue(same < cnt / 10 + 1);
+    }
+}
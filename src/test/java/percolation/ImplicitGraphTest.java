@@ -0,0 +1,66 @@
+package percolation;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import percolation.graphs.ImplicitGraph;
+import percolation.util.Config;
+import percolation.util.ConfigBuilder;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+public class ImplicitGraphTest {
+
+    protected static Arguments args(int r, int skip) throws Exception {
+        Config gc = new ConfigBuilder().radius(r).skip(skip).graph("ImplicitGraph").build();
+        return Arguments.of(new Graph(gc), Graph.load(gc));
+    }
+
+    protected static Stream<Arguments> args() throws Exception {
+        return Stream.of(args(1, 0), args(3, 0), args(3, 1), args(64, 0), args(101, 2));
+    }
+
+    @ParameterizedTest @MethodSource("args")
+    void testVid(Graph g, Graph ig) {
+        assertInstanceOf(ImplicitGraph.class, ig);
+        assertEquals(g.root, ig.root);
+        for (int x = -g.r; x <= g.r; x++)
+            for (int y = Math.abs(x) - g.r; y <= g.r - Math.abs(x); y++)
+                assertEquals(g.vid(x, y), ig.vid(x, y));
+    }
+
+    @ParameterizedTest @MethodSource("args")
+    void testCoordinates(Graph g, Graph ig) {
+        for (int vid = 0; vid < g.vs; vid++) {
+            assertEquals(g.x(vid), ig.x(vid));
+            assertEquals(g.y(vid), ig.y(vid));
+        }
+    }
+
+    @ParameterizedTest @MethodSource("args")
+    void testNext(Graph g, Graph ig) {
+        for (int dir = 0; dir < 4; dir++)
+            for (int vid = 0; vid < g.vs; vid++) {
+                assertEquals(g.next(vid, dir), ig.next(vid, dir));
+                assertEquals(g.isNotAt(dir, vid), ig.isNotAt(dir, vid));
+            }
+    }
+
+    @ParameterizedTest @MethodSource("args")
+    void testEdges(Graph g, Graph ig) {
+        g.init(5L);
+        ig.init(5L);
+        for (int pn = 0; pn <= 100; pn += 25) {
+            g.update(pn);
+            ig.update(pn);
+            for (int dir = 0; dir < 4; dir++)
+                for (int vid = 0; vid < g.vs; vid++) {
+                    assertEquals(g.epn(vid, dir), ig.epn(vid, dir));
+                    assertEquals(g.isEdgeEnabled(vid, dir), ig.isEdgeEnabled(vid, dir));
+                }
+        }
+    }
+}
@@ -35,9 +35,9 @@ public class JGT_BackedGraph extends Graph {
         super.init(seed);
         // remove all edges with probability greater than pn
         for (int vid = 0; vid < vs; vid++) {
-            if (isNotAt(R, vid) && epn[R][vid] > pn && jgt.containsEdge(vid, next(vid, R)))
+            if (isNotAt(R, vid) && epn(vid, R) > pn && jgt.containsEdge(vid, next(vid, R)))
                 jgt.removeEdge(vid, next(vid, R));
-            if (isNotAt(D, vid) && epn[D][vid] > pn && jgt.containsEdge(vid, next(vid, D)))
+            if (isNotAt(D, vid) && epn(vid, D) > pn && jgt.containsEdge(vid, next(vid, D)))
                 jgt.removeEdge(vid, next(vid, D));
         }
         IntArrays.quickSort(sre, (a, b) -> epn(a, R) > epn(b, R) ? 1 : epn(a, R) < epn(b, R) ? -1 : 0);
@@ -52,9 +52,9 @@ public class JGT_BackedGraph extends Graph {
     }
 
     @Override public void update(int pn) {
-        while (srei < vs && epn[R][sre[srei]] <= pn)
+        while (srei < vs && epn(sre[srei], R) <= pn)
             jgt.addEdge(sre[srei], next(sre[srei++], R));
-        while (sdei < vs && epn[D][sde[sdei]] <= pn)
+        while (sdei < vs && epn(sde[sdei], D) <= pn)
             jgt.addEdge(sde[sdei], next(sde[sdei++], D));
     }
 
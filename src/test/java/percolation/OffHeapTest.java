@@ -0,0 +1,69 @@
+package percolation;
+
+import org.junit.jupiter.api.Test;
+import percolation.util.LongQueue;
+import percolation.util.OffHeapInts;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapTest {
+
+    @Test
+    void intsSpanChunks() {
+        try (OffHeapInts a = new OffHeapInts(1000, 6)) { // 64 ints per chunk, the last one partial
+            a.fill(-7);
+            for (long i = 0; i < a.length(); i++)
+                assertEquals(-7, a.get(i));
+            for (long i = 0; i < a.length(); i += 3)
+                a.set(i, (int) i * 5);
+            for (long i = 0; i < a.length(); i++)
+                assertEquals(i % 3 == 0 ? (int) i * 5 : -7, a.get(i));
+        }
+    }
+
+    @Test
+    void closeFreesTheDirectMemory() {
+        BufferPoolMXBean direct = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(b -> b.getName().equals("direct")).findFirst().orElseThrow();
+        long before = direct.getMemoryUsed(), size = 4L << 20;
+        OffHeapInts a = new OffHeapInts(size / 4, 16);
+        LongQueue.Pool pool = new LongQueue.Pool(1 << 16);
+        try (LongQueue q = new LongQueue(pool)) {
+            for (int i = 0; i < 1 << 17; i++) // two chunks of 512KB
+                q.enqueue(i);
+        }
+        assertTrue(direct.getMemoryUsed() >= before + size + (1 << 20));
+        a.close();
+        pool.close();
+        assertTrue(direct.getMemoryUsed() < before + (1 << 20)); // without waiting for the gc
+    }
+
+    @Test
+    void queueIsFifoAcrossChunks() {
+        LongQueue.Pool pool = new LongQueue.Pool(16);
+        try (LongQueue q = new LongQueue(pool); LongQueue p = new LongQueue(pool)) {
+            long in = 0, out = 0;
+            for (int round = 1; round <= 20; round++) { // interleaved, so chunks are recycled between the queues
+                for (int i = 0; i < 7 * round; i++) {
+                    q.enqueue(in);
+                    p.enqueue(-in++);
+                }
+                for (int i = 0; i < 5 * round; i++) {
+                    assertEquals(out, q.dequeue());
+                    assertEquals(-out++, p.dequeue());
+                }
+                assertEquals(in - out, q.size());
+            }
+            while (q.size() != 0)
+                assertEquals(out++, q.dequeue());
+            assertEquals(in, out);
+            q.enqueue(42);
+            p.clear();
+            assertEquals(0, p.size());
+            assertEquals(42, q.dequeue());
+        }
+    }
+}
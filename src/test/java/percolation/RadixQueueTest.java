@@ -0,0 +1,93 @@
+package percolation;
+
+import org.junit.jupiter.api.Test;
+import percolation.util.Queue;
+import percolation.util.RadixQueue;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RadixQueueTest extends QueueTest {
+    private int[] keys;
+
+    @Override
+    protected Queue createQueue(int cap) {
+        keys = IntStream.range(0, cap).toArray(); // each value is its own key
+        return new RadixQueue(keys);
+    }
+
+    @Test
+    @Override
+    void testEnqueue() {
+        super.testEnqueue();
+        assertEquals(1, q.dequeue());
+        assertEquals(2, q.dequeue());
+        assertEquals(3, q.dequeue());
+        assertEquals(0, q.size());
+    }
+
+    @Test
+    @Override
+    void testFirstAndLastInt() {
+        super.testFirstAndLastInt();
+
+        assertEquals(1, q.first());
+
+        q.dequeue();
+        assertEquals(2, q.first());
+    }
+
+    @Test
+    void testLastIsTheLargestKey() {
+        q.enqueue(1);
+        q.enqueue(4);
+        q.enqueue(2);
+        assertEquals(4, q.last());
+        keys[4] = 1; // the old entry of 4 no longer counts
+        q.enqueue(4);
+        assertEquals(2, q.last());
+        q.dequeue(); // 1 and 4, both with key 1
+        q.dequeue();
+        assertEquals(2, q.last());
+        assertNull(q.arr());
+    }
+
+    @Test
+    void testDecreasedKeyIsDequeuedOnce() {
+        q.enqueue(4);
+        q.enqueue(3);
+        keys[4] = 2; // decrease the key of a queued value and enqueue it again
+        q.enqueue(4);
+        assertEquals(2, q.size());
+        assertEquals(4, q.dequeue());
+        assertEquals(3, q.dequeue());
+        assertEquals(0, q.size());
+    }
+
+    @Test
+    void testMonotoneOrder() {
+        int n = 10000;
+        keys = new int[n];
+        RadixQueue rq = new RadixQueue(keys);
+        Random rnd = new Random(1);
+        for (int x = 0; x < n / 2; x++) {
+            keys[x] = rnd.nextInt(1 << 20);
+            rq.enqueue(x);
+        }
+        for (int x = n / 2, last = 0; rq.size() != 0; ) {
+            int y = rq.dequeue();
+            assertTrue(keys[y] >= last);
+            last = keys[y];
+            if (x < n) { // keep enqueueing keys that are not smaller than the last dequeued one
+                keys[x] = last + rnd.nextInt(1000);
+                rq.enqueue(x++);
+            }
+        }
+        rq.clear();
+        assertEquals(0, rq.size());
+    }
+}
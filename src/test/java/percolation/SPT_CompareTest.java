@@ -58,7 +58,10 @@ public class SPT_CompareTest {
 //        return args(BFS::create);
         return Stream.concat(args(BFS::create),
                 Stream.concat(args(IBFS::create),
-                        args(PIBFS::create)));
+                        Stream.concat(args(DIBFS::create),
+                                Stream.concat(args(DOBFS::create),
+                                        Stream.concat(args(LPBFS::create),
+                                                args(PIBFS::create))))));
     }
 
     private static Stream<Arguments> args(MakeSptArg create) {
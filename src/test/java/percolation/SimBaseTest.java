@@ -0,0 +1,324 @@
+package percolation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import percolation.spts.BFS;
+import percolation.util.Config;
+import percolation.util.ConfigBuilder;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimBaseTest {
+
+    private static long[][][] run(Config gc) throws Exception {
+        return run(gc, null, -1);
+    }
+
+    private static long[][][] run(Config gc, long[][][] res, long crash) throws Exception {
+        return run(gc, res, crash, false, new AtomicLong());
+    }
+
+    // add the saved results to res (a new array if null) and fail when the experiment with the crash seed starts,
+    // or when it closes after its dump (flushed). db holds the last commit of the dumps
+    private static long[][][] run(Config gc, long[][][] res, long crash, boolean flushed, AtomicLong db)
+            throws Exception {
+        Graph g = Graph.load(gc);
+        int[] targets = Graph.targets(gc, g);
+        int cells = Graph.fold(gc, g, targets).reps().length;
+        long[][][] sums = res != null ? res : new long[2][gc.ps][cells]; // distance sums and counts
+        AtomicBoolean trans = new AtomicBoolean(); // a dump transaction is open
+        try (SPT spt = SPT.load(gc, g, gc.spt)) {
+            Sim sim = new SimBase(gc, g, spt, targets);
+            sim.set(new SimDec(sim) {
+                private long exp; // seed of the open experiment
+
+                @Override public void save(int pi, int tid, long dsum, int dcnt) {
+                    sums[0][pi][tid] += dsum;
+                    sums[1][pi][tid] += dcnt;
+                }
+
+                @Override public void trans(boolean done) {
+                    assertEquals(done, trans.getAndSet(!done));
+                }
+
+                @Override public void exp(long seed) {
+                    assertFalse(trans.get()); // the db is not used during a background dump
+                    exp = seed;
+                    if (seed == crash && !flushed)
+                        throw new IllegalStateException("crash");
+                }
+
+                @Override public void exp(boolean close) {
+                    assertEquals(!close, trans.get());
+                    if (close && exp == crash && flushed)
+                        throw new IllegalStateException("crash");
+                }
+
+                @Override public void commit(long commit) {
+                    assertTrue(trans.get());
+                    db.set(commit);
+                }
+
+                @Override public long committed() {
+                    return db.get();
+                }
+            });
+            sim.run(gc.seed);
+        }
+        return sums;
+    }
+
+    private static Config config(String spt, int threads) {
+        return config(spt, threads, 9, "legacy");
+    }
+
+    private static Config config(String spt, int threads, int runs, String rng) {
+        return new ConfigBuilder().spt(spt).seed(7).runs(runs).threads(threads).rng(rng)
+                .radius(12).from(40).to(100).step(5).targets("all").stats("none").build();
+    }
+
+    @ParameterizedTest @ValueSource(strings = { "BFS", "IBFS" })
+    void parallelRunsAggregateAsSequentialRuns(String spt) throws Exception {
+        long[][][] seq = run(config(spt, 1));
+        long[][][] par = run(config(spt, 3));
+        assertArrayEquals(seq[0], par[0]);
+        assertArrayEquals(seq[1], par[1]);
+    }
+
+    @ParameterizedTest @ValueSource(strings = { "min", "full" })
+    void parallelRunsRejectTheStatsDecorators(String stats) {
+        ConfigBuilder b = new ConfigBuilder().spt("BFS").seed(7).runs(4).radius(12).stats(stats);
+        assertThrows(RuntimeException.class, () -> b.threads(2).build()); // only the first worker would be counted
+        assertEquals(stats, b.threads(1).build().stats);
+    }
+
+    @ParameterizedTest @ValueSource(strings = { "BFS", "IBFS" })
+    void earlyStopKeepsTheTargetDistances(String spt) throws Exception {
+        ConfigBuilder b = new ConfigBuilder().spt(spt).seed(3).runs(6).radius(40).distance(8)
+                .from(40).to(100).step(3).targets("all").stats("none");
+        long[][][] full = run(b.build());
+        long[][][] early = run(b.early(true).build());
+        assertArrayEquals(full[0], early[0]);
+        assertArrayEquals(full[1], early[1]);
+    }
+
+    @ParameterizedTest @ValueSource(strings = { "DOBFS", "DIBFS", "LPBFS", "PIBFS", "BitBFS", "UnionFind", "FPP" })
+    void earlyStopIsRejectedWhereIgnored(String spt) {
+        ConfigBuilder b = new ConfigBuilder().spt(spt).rng("split").radius(12);
+        assertEquals(spt, b.build().spt);
+        assertThrows(RuntimeException.class, () -> b.early(true).build());
+    }
+
+    @ParameterizedTest @CsvSource({ "-1, 1", "-2, 1", "1, 1", "-1, 3", "-2, 3", "1, 3" })
+    void backgroundDumpsKeepTheAggregates(long save, int threads) throws Exception {
+        ConfigBuilder b = new ConfigBuilder().spt("IBFS").seed(5).runs(8).threads(threads)
+                .radius(12).from(40).to(100).step(5).targets("all").stats("none");
+        long[][][] direct = run(b.build()); // no db: every result is saved directly
+        long[][][] dumped = run(b.dbUrl("jdbc:test").saveEvery(save).build());
+        assertArrayEquals(direct[0], dumped[0]);
+        assertArrayEquals(direct[1], dumped[1]);
+    }
+
+    @ParameterizedTest @CsvSource({ "-1, 1", "-2, 1", "1, 1", "-1, 3", "-2, 3", "1, 3" })
+    void resumeSavesEveryRunOnce(long save, int threads, @TempDir Path dir) throws Exception {
+        ConfigBuilder b = new ConfigBuilder().spt("IBFS").seed(5).runs(8).threads(threads).dbUrl("jdbc:test")
+                .saveEvery(save).radius(12).from(40).to(100).step(5).targets("all").stats("none");
+        long[][][] expected = run(b.build());
+        b.checkpoint(dir.resolve("checkpoint.bin").toString());
+        long[][][] res = new long[2][expected[0].length][expected[0][0].length];
+        assertThrows(RuntimeException.class, () -> run(b.build(), res, 5 + 5)); // crash when run 5 starts
+        run(b.resume(true).build(), res, -1);
+        assertArrayEquals(expected[0], res[0]);
+        assertArrayEquals(expected[1], res[1]);
+    }
+
+    // a crash after the dump of a run is committed and before its checkpoint is saved by the run
+    @ParameterizedTest @CsvSource({ "-1, 1", "1, 1", "-1, 3", "1, 3" })
+    void resumeAfterTheDumpSavesEveryRunOnce(long save, int threads, @TempDir Path dir) throws Exception {
+        ConfigBuilder b = new ConfigBuilder().spt("IBFS").seed(5).runs(8).threads(threads).dbUrl("jdbc:test")
+                .saveEvery(save).radius(12).from(40).to(100).step(5).targets("all").stats("none");
+        long[][][] expected = run(b.build());
+        b.checkpoint(dir.resolve("checkpoint.bin").toString());
+        long[][][] res = new long[2][expected[0].length][expected[0][0].length];
+        AtomicLong db = new AtomicLong();
+        assertThrows(RuntimeException.class, () -> run(b.build(), res, 5 + 5, true, db)); // crash when run 5 closes
+        run(b.resume(true).build(), res, -1, false, db);
+        assertArrayEquals(expected[0], res[0]);
+        assertArrayEquals(expected[1], res[1]);
+    }
+
+    @ParameterizedTest @ValueSource(ints = { 1, 2 })
+    void bitParallelLanesAggregateAsSeparateRuns(int threads) throws Exception {
+        long[][][] seq = run(config("BFS", 1, 150, "split")); // two full batches of 64 lanes and a partial one
+        long[][][] bit = run(config("BitBFS", threads, 150, "split"));
+        assertArrayEquals(seq[0], bit[0]);
+        assertArrayEquals(seq[1], bit[1]);
+        ConfigBuilder b = new ConfigBuilder().spt("BitBFS").rng("split").radius(12);
+        assertEquals(1, b.build().roots);
+        assertThrows(RuntimeException.class, () -> b.roots(2).build()); // the lanes keep the origin targets only
+    }
+
+    // the runs stop once every stretch interval is narrow enough (well above the threshold every run reaches every
+    // target)
+    @ParameterizedTest @CsvSource({ "BFS, 1", "IBFS, 3" })
+    void precisionStopsTheRuns(String spt, int threads) throws Exception {
+        long[][][] res = run(new ConfigBuilder().spt(spt).seed(7).runs(50).threads(threads).precision(100).minRuns(4)
+                .radius(12).from(90).to(100).step(5).targets("all").stats("none").build());
+        for (int tid = 0; tid < res[1][0].length; tid++) {
+            assertTrue(res[1][res[1].length - 1][tid] >= 4);
+            assertTrue(res[1][res[1].length - 1][tid] < 4 + threads);
+        }
+        res = run(new ConfigBuilder().spt(spt).seed(7).runs(12).threads(threads).precision(1e-9).minRuns(4)
+                .radius(12).from(40).to(100).step(5).targets("all").stats("none").build());
+        assertEquals(12, res[1][res[1].length - 1][0]);
+    }
+
+    @Test
+    void precisionIsNotResumed() {
+        ConfigBuilder b = new ConfigBuilder().spt("BFS").runs(5).radius(12).saveEvery(-1).checkpoint("cp.bin")
+                .precision(0.1);
+        assertEquals(0.1, b.build().precision);
+        assertThrows(RuntimeException.class, () -> b.resume(true).build()); // the moments are not checkpointed
+    }
+
+    // at the threshold the far targets are rarely reached, so even a loose precision runs all the runs to give
+    // them runs.min samples
+    @ParameterizedTest @ValueSource(ints = { 1, 3 })
+    void rarelyReachedTargetsKeepTheRunsGoing(int threads) throws Exception {
+        ConfigBuilder b = new ConfigBuilder().spt("IBFS").seed(7).runs(12).threads(threads).minRuns(10).radius(12)
+                .from(50).to(50).targets("all").stats("none");
+        long[][][] all = run(b.build()), res = run(b.precision(100).build());
+        assertTrue(Arrays.stream(res[1][0]).min().orElseThrow() < 10); // a far target is still short of samples
+        assertArrayEquals(all[0], res[0]);
+        assertArrayEquals(all[1], res[1]);
+    }
+
+    // p = 1 has no variance, so it is dropped after the first runs, while p = 0.4 is not converged yet
+    @ParameterizedTest @ValueSource(ints = { 1, 3 })
+    void convergedProbabilitiesAreDropped(int threads) throws Exception {
+        long[][][] res = run(new ConfigBuilder().spt("IBFS").seed(7).runs(30).threads(threads).precision(0.05)
+                .minRuns(4).drop(true).radius(12).from(40).to(100).step(5).targets("all").stats("none").build());
+        long[] first = res[1][0], last = res[1][res[1].length - 1];
+        assertTrue(Arrays.stream(last).allMatch(c -> c >= 4 && c < 4 + threads));
+        assertTrue(Arrays.stream(first).max().orElseThrow() > 4 + threads);
+    }
+
+    @Test
+    void halfWidthIsTheStretchInterval() {
+        Config gc = new ConfigBuilder().seed(7).runs(4).precision(0.1).minRuns(3).radius(12).from(40).to(100)
+                .step(5).targets("all").stats("none").build();
+        Graph g = new Graph(gc);
+        SimBase.Moments m = new SimBase(gc, g, BFS.create(gc, g), new int[0]).new Moments(new int[]{ 4 });
+        m.add(0, 0, 4 + 6, 16 + 36, 2);
+        assertEquals(Double.POSITIVE_INFINITY, m.halfWidth(0, 0)); // fewer than runs.min samples
+        m.add(0, 0, 5, 25, 1); // 4, 5, 6: mean 5, variance 1
+        assertEquals(1.96 * Math.sqrt(1.0 / 3) / 4, m.halfWidth(0, 0), 1e-12);
+        assertFalse(m.converged(0));
+        assertFalse(m.converged(1)); // never reached
+        m.add(1, 0, 4 * 3, 16 * 3, 3);
+        assertTrue(m.converged(1)); // runs.min samples, no variance
+    }
+
+    private static Config roots(String spt, int threads, int roots, int skip) {
+        return new ConfigBuilder().spt(spt).seed(7).runs(5).threads(threads).rng("split").roots(roots).skip(skip)
+                .graph(spt.startsWith("Big") ? "BigGraph" : null).radius(20).distance(8).from(40).to(100).step(5)
+                .targets("all").stats("none").build();
+    }
+
+    @ParameterizedTest @CsvSource({ "1, 0", "5, 0", "9, 1", "4, 2" })
+    void rootsKeepTheTargetsInTheGraph(int n, int skip) {
+        Config gc = roots("BFS", 1, n, skip);
+        Graph g = new Graph(gc);
+        int[] targets = Graph.targets(gc, g);
+        Graph.Root[] roots = Graph.roots(gc, g, targets);
+        assertEquals(n, roots.length);
+        assertEquals(g.root, roots[0].vid());
+        assertEquals(n, Arrays.stream(roots).mapToInt(Graph.Root::vid).distinct().count());
+        int tl = Arrays.stream(targets).map(vid -> Math.abs(g.x(vid)) + Math.abs(g.y(vid))).max().orElseThrow();
+        for (Graph.Root root : roots) {
+            int x = g.x(root.vid()), y = g.y(root.vid());
+            assertEquals(0, (x + y) % (skip + 1));
+            assertTrue(Math.abs(x) + Math.abs(y) + tl <= gc.r - tl); // the margin of the origin targets
+            for (int tid = 0; tid < targets.length; tid++) {
+                assertEquals(g.x(targets[tid]) + x, g.x(root.targets()[tid]));
+                assertEquals(g.y(targets[tid]) + y, g.y(root.targets()[tid]));
+            }
+        }
+    }
+
+    @Test
+    void rootsNeedTheirMargin() {
+        Config gc = new ConfigBuilder().spt("BFS").seed(7).runs(5).roots(2).radius(20).from(40).to(100).step(5)
+                .targets("far").stats("none").build();
+        Graph g = new Graph(gc);
+        assertThrows(RuntimeException.class, () -> Graph.roots(gc, g, Graph.targets(gc, g))); // at 16, no ring left
+        assertThrows(RuntimeException.class, () -> new ConfigBuilder().spt("BFS").runs(5).roots(2).radius(20)
+                .precision(0.1).build());
+    }
+
+    // every engine reuses the realization for the other roots as a fresh search from each of them would
+    @ParameterizedTest @CsvSource({ "IBFS, 1, 0", "IBFS, 3, 1", "PIBFS, 1, 0", "DIBFS, 1, 1", "LPBFS, 2, 0",
+            "DOBFS, 1, 0", "BigBFS, 1, 1", "BigIBFS, 2, 0" })
+    void rootsAggregateAsSeparateSearches(String spt, int threads, int skip) throws Exception {
+        long[][][] bfs = run(roots("BFS", 1, 4, skip)), res = run(roots(spt, threads, 4, skip));
+        assertArrayEquals(bfs[0], res[0]);
+        assertArrayEquals(bfs[1], res[1]);
+
+        Config gc = roots("BFS", 1, 4, skip);
+        Graph g = new Graph(gc);
+        Graph.Root[] roots = Graph.roots(gc, g, Graph.targets(gc, g));
+        long[][] dsum = new long[gc.ps][roots[0].targets().length];
+        try (SPT s = SPT.load(gc, g, "BFS")) {
+            for (int run = 0; run < gc.runs; run++)
+                for (Graph.Root root : roots) {
+                    s.init(gc.seed + run);
+                    g.root(root.vid());
+                    for (int pi = 0, pn = gc.from; pi < gc.ps; pi++, pn += gc.step) {
+                        s.preUpdate(pn);
+                        s.update(pn);
+                        for (int tid = 0; tid < dsum[pi].length; tid++)
+                            if (s.dist(root.targets()[tid]) != Integer.MAX_VALUE)
+                                dsum[pi][tid] += s.dist(root.targets()[tid]);
+                    }
+                }
+        }
+        assertArrayEquals(dsum, bfs[0]);
+    }
+
+    @ParameterizedTest @CsvSource({ "0, 1", "1, 3", "2, 1" })
+    void foldedTargetsAggregateTheirClasses(int skip, int threads) throws Exception {
+        ConfigBuilder b = new ConfigBuilder().spt("IBFS").seed(5).runs(6).threads(threads).skip(skip).radius(20)
+                .from(40).to(100).step(5).targets("all").stats("none");
+        long[][][] all = run(b.build()), folded = run(b.fold(true).build());
+        Config gc = b.build();
+        Graph g = new Graph(gc);
+        int[][] members = Graph.fold(gc, g, Graph.targets(gc, g)).members();
+        assertEquals(members.length, folded[0][0].length);
+        assertEquals(skip < 2, members.length < all[0][0].length); // a longer skip period leaves no symmetry
+        for (int i = 0; i < 2; i++)
+            for (int pi = 0; pi < gc.ps; pi++)
+                for (int c = 0; c < members.length; c++) {
+                    long sum = 0;
+                    for (int tid : members[c])
+                        sum += all[i][pi][tid];
+                    assertEquals(sum, folded[i][pi][c]);
+                }
+    }
+
+    @ParameterizedTest @CsvSource({ "BigBFS, 1", "BigIBFS, 3" })
+    void bigGraphRunsAggregateAsGraphRuns(String spt, int threads) throws Exception {
+        long[][][] seq = run(config("IBFS", 1, 9, "split"));
+        long[][][] big = run(new ConfigBuilder().spt(spt).graph("BigGraph").seed(7).runs(9).threads(threads)
+                .rng("split").radius(12).from(40).to(100).step(5).targets("all").stats("none").build());
+        assertArrayEquals(seq[0], big[0]);
+        assertArrayEquals(seq[1], big[1]);
+    }
+}
@@ -0,0 +1,52 @@
+package percolation;
+
+import org.junit.jupiter.api.Test;
+import percolation.stats.Stats;
+import percolation.util.Config;
+import percolation.util.ConfigBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatsTest {
+
+    @Test
+    void countersAreSafeForConcurrentUpdates() {
+        Config gc = new ConfigBuilder().radius(10).stats("full").build();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int n = 100_000;
+        try (Stats stats = new Stats(gc, new PrintStream(bytes, true), 10, "BFS")) {
+            stats.queue();
+            IntStream.range(0, 4).parallel().forEach(t -> {
+                for (int i = 0; i < n; i++) {
+                    stats.queue(i % 1000 + t);
+                    stats.dist(i % 500);
+                }
+            });
+            assertEquals(4L * n, stats.dequeues());
+            assertEquals(999 + 3, stats.maxQueue());
+            assertEquals(499, stats.maxDist());
+        }
+        assertTrue(bytes.toString().contains("400.00K")); // rendered by the reporter on close
+    }
+
+    // the reporter renders while the sim thread has progress text on the console
+    @Test
+    void cellsKeepTheCursorOfTheProgressText() throws Exception {
+        Config gc = new ConfigBuilder().radius(10).stats("full").build();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Stats stats = new Stats(gc, new PrintStream(bytes, true), 1, "BFS")) {
+            bytes.reset();
+            stats.print("Sorting 60 vertices...");
+            Thread.sleep(50);
+        }
+        String s = bytes.toString();
+        assertTrue(s.startsWith("Sorting 60 vertices..."));
+        String cells = s.substring("Sorting 60 vertices...".length());
+        assertTrue(cells.contains("\u001b[s"));
+        assertEquals("", cells.replaceAll("(?s)\u001b\\[s.*?\u001b\\[u", "")); // saved and restored
+    }
+}
@@ -0,0 +1,85 @@
+package percolation;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import percolation.db.ColumnStore;
+import percolation.db.SimColumnDec;
+import percolation.spts.BFS;
+import percolation.spts.UnionFind;
+import percolation.util.Config;
+import percolation.util.ConfigBuilder;
+
+import java.nio.file.Path;
+
+import static java.lang.Integer.MAX_VALUE;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UnionFindTest {
+
+    @ParameterizedTest @ValueSource(ints = { 0, 1 })
+    void rootClusterIsTheBfsReachableSet(int skip) throws Exception {
+        Config gc = new ConfigBuilder().radius(30).skip(skip).from(30).to(100).step(7).stats("none").build();
+        Graph g1 = new Graph(gc), g2 = new Graph(gc);
+        try (SPT bfs = BFS.create(gc, g1); UnionFind uf = (UnionFind) UnionFind.create(gc, g2)) {
+            for (long seed = 1; seed <= 10; seed++) {
+                bfs.init(seed);
+                uf.init(seed);
+                int threshold = MAX_VALUE;
+                for (int pn = gc.from; pn <= gc.to; pn += gc.step) {
+                    bfs.preUpdate(pn);
+                    bfs.update(pn);
+                    uf.preUpdate(pn);
+                    uf.update(pn);
+                    int reached = 0;
+                    boolean boundary = false;
+                    for (int vid = 0; vid < gc.vs; vid++) {
+                        assertEquals(bfs.dist(vid) != MAX_VALUE, uf.dist(vid) == 0);
+                        if (bfs.dist(vid) != MAX_VALUE) {
+                            reached++;
+                            boundary |= Math.abs(g1.x(vid)) + Math.abs(g1.y(vid)) == gc.r;
+                        }
+                    }
+                    assertEquals(reached, uf.rootSize());
+                    assertTrue(uf.largest() >= reached);
+                    assertEquals(boundary, uf.threshold() <= pn);
+                    if (threshold == MAX_VALUE && boundary)
+                        threshold = uf.threshold();
+                    assertTrue(uf.threshold() <= threshold); // set once, not later than the first step it spans
+                }
+            }
+        }
+    }
+
+    // save.every 0 saves every step through the decorators, -1 through the aggregates
+    @ParameterizedTest @ValueSource(longs = { 0, -1 })
+    void clusterMetricsAreSaved(long save, @TempDir Path dir) throws Exception {
+        Config gc = new ConfigBuilder().spt("UnionFind").seed(3).runs(4).radius(20).from(40).to(100).step(20)
+                .targets("all").stats("none").storeFile(dir.resolve("res.bin").toString()).saveEvery(save).build();
+        Graph g = new Graph(gc);
+        long[][] sums = new long[gc.ps][SPT.CLUSTERS];
+        try (SPT uf = UnionFind.create(gc, g)) {
+            for (int run = 0; run < gc.runs; run++) {
+                uf.init(gc.seed + run);
+                for (int pi = 0, pn = gc.from; pi < gc.ps; pi++, pn += gc.step) {
+                    uf.preUpdate(pn);
+                    uf.update(pn);
+                    for (int m = 0; m < SPT.CLUSTERS; m++)
+                        sums[pi][m] += uf.clusters()[m];
+                }
+            }
+        }
+        int[] targets = Graph.targets(gc, g);
+        try (SPT spt = SPT.load(gc, g, gc.spt); ColumnStore cs = ColumnStore.open(Path.of(gc.storeFile), gc, g, targets)) {
+            Sim sim = new SimBase(gc, spt, targets);
+            sim.set(new SimColumnDec(gc, sim, cs));
+            sim.run(gc.seed);
+            for (int pi = 0; pi < gc.ps; pi++)
+                for (int m = 0; m < SPT.CLUSTERS; m++) {
+                    assertEquals(sums[pi][m], cs.csum(pi, m));
+                    assertEquals(gc.runs, cs.ccnt(pi, m));
+                }
+            assertEquals(1.0, cs.cluster(gc.ps - 1, 2)); // every root cluster spans at p = 1
+        }
+    }
+}
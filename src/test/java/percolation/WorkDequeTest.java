@@ -0,0 +1,47 @@
+package percolation;
+
+import org.junit.jupiter.api.Test;
+import percolation.util.WorkDeque;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkDequeTest {
+
+    @Test
+    void pollTakesFromTheHead() {
+        WorkDeque dq = new WorkDeque();
+        dq.push(new int[]{1, 2, 3, 4, 5}, 1, 5);
+        int[] dst = new int[3];
+        assertEquals(3, dq.poll(dst, 3));
+        assertArrayEquals(new int[]{2, 3, 4}, dst);
+        assertEquals(1, dq.poll(dst, 3));
+        assertEquals(5, dst[0]);
+        assertEquals(0, dq.poll(dst, 3));
+    }
+
+    @Test
+    void stealTakesTheTailHalf() {
+        WorkDeque dq = new WorkDeque();
+        dq.push(new int[]{1, 2, 3, 4, 5}, 0, 5);
+        int[] dst = new int[8];
+        assertEquals(3, dq.steal(dst));
+        assertArrayEquals(new int[]{3, 4, 5}, Arrays.copyOf(dst, 3));
+        assertEquals(2, dq.size());
+        assertEquals(1, dq.steal(new int[1])); // limited by the destination
+        assertEquals(1, dq.size());
+    }
+
+    @Test
+    void growKeepsTheOrder() {
+        WorkDeque dq = new WorkDeque();
+        int[] src = IntStream.range(0, 5000).toArray(), dst = new int[5000];
+        dq.push(src, 0, 700);
+        assertEquals(500, dq.poll(dst, 500)); // move the head so the ring wraps around
+        dq.push(src, 700, 5000);
+        assertEquals(4500, dq.poll(dst, 5000));
+        assertArrayEquals(IntStream.range(500, 5000).toArray(), Arrays.copyOf(dst, 4500));
+    }
+}
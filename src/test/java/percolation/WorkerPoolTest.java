@@ -0,0 +1,79 @@
+package percolation;
+
+import org.junit.jupiter.api.Test;
+import percolation.util.Config;
+import percolation.util.ConfigBuilder;
+import percolation.util.WorkerPool;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkerPoolTest {
+
+    private static Config config(int threads, int spin, boolean shared) {
+        return new ConfigBuilder().radius(3).pibfsThreads(threads).pibfsSpin(spin).pibfsShared(shared).build();
+    }
+
+    @Test
+    void runsEveryWorkerOncePerTask() throws Exception {
+        for (int spin : new int[]{0, 1000}) {
+            try (WorkerPool pool = WorkerPool.create(config(3, spin, false))) {
+                AtomicLongArray calls = new AtomicLongArray(pool.threads());
+                for (int t = 0; t < 1000; t++)
+                    pool.run(calls::incrementAndGet);
+                for (int i = 0; i < pool.threads(); i++)
+                    assertEquals(1000, calls.get(i));
+            }
+        }
+    }
+
+    @Test
+    void defaultsToHalfTheCores() {
+        assertEquals(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), config(0, 0, false).pibfsThreads);
+    }
+
+    @Test
+    void sharedPoolIsClosedByTheLastUser() throws Exception {
+        WorkerPool p1 = WorkerPool.create(config(2, 10, true)), p2 = WorkerPool.create(config(2, 10, true));
+        assertSame(p1, p2);
+        p1.close();
+        AtomicLong sum = new AtomicLong();
+        p2.run(sum::addAndGet); // still open
+        assertEquals(1, sum.get());
+        p2.close();
+        assertThrows(IllegalStateException.class, () -> p2.run(i -> { }));
+        try (WorkerPool p3 = WorkerPool.create(config(2, 10, true))) {
+            assertNotSame(p1, p3);
+        }
+    }
+
+    @Test
+    void failuresAreRethrown() throws Exception {
+        try (WorkerPool pool = WorkerPool.create(config(2, 0, false))) {
+            assertThrows(RuntimeException.class, () -> pool.run(i -> {
+                if (i == 1) throw new IllegalArgumentException();
+            }));
+            AtomicLong cnt = new AtomicLong();
+            pool.run(i -> cnt.incrementAndGet()); // the pool is still usable
+            assertEquals(2, cnt.get());
+        }
+    }
+
+    @Test
+    void failuresReleaseTheWaitingWorkers() throws Exception {
+        try (WorkerPool pool = WorkerPool.create(config(3, 100, false))) {
+            AtomicLong work = new AtomicLong(3);
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(RuntimeException.class,
+                    () -> pool.run(i -> {
+                        if (i == 1)
+                            throw new IllegalArgumentException(); // before its work is counted down
+                        work.decrementAndGet();
+                        while (work.get() != 0 && !pool.failed())
+                            Thread.onSpinWait();
+                    })));
+        }
+    }
+}